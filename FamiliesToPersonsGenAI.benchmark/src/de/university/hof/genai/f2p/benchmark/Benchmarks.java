@@ -0,0 +1,26 @@
+package de.university.hof.genai.f2p.benchmark;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the JMH benchmarks of this bundle, always with the GC profiler (-prof gc), so every result
+// comes with gc.alloc.rate.norm, the bytes allocated per operation. Takes the usual JMH command
+// line, e.g. "IncrementalBenchmark -p families=100000 -f 1" or "-h" for help. Retained heap is
+// measured separately by Footprint. JMH and its annotation processor come from jmh.target.
+public class Benchmarks {
+
+    public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        new Runner(new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build()).run();
+    }
+}
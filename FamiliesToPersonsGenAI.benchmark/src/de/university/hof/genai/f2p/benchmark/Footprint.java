@@ -0,0 +1,124 @@
+package de.university.hof.genai.f2p.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import Families.FamiliesFactory;
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Person;
+import Persons.PersonsFactory;
+import de.university.hof.genai.f2p.IncrementalModelTransformer.ListenerScope;
+import de.university.hof.genai.f2p.LazyPersonsView;
+import de.university.hof.genai.f2p.PersonNames;
+import de.university.hof.genai.f2p.Trace;
+import de.university.hof.genai.f2p.benchmark.IncrementalBenchmark.Incremental;
+
+// Heap retained by the structures the benchmarks create, per element. The GC profiler of the JMH
+// benchmarks only reports what is allocated, not what stays reachable afterwards, so this is
+// measured from the used heap after full collections before and after each run.
+//
+// Arguments: families childrenPerFamily links
+public class Footprint {
+
+	private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+	// One prepared run: what it creates and the number of elements it handles
+	private record Run(int elements, Supplier<Object> action) {
+	}
+
+    public static void main(String[] args) {
+        int families = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int childrenPerFamily = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int links = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+        ModelGenerator generator = new ModelGenerator(families, childrenPerFamily, 0.05, 0.01, 42);
+
+        System.out.printf("%-60s %12s%n", "Footprint", "B/element");
+        measure("ModelTransformer.transformFamiliesToPersons", () -> {
+            FamilyRegister familyRegister = generator.createFamilyRegister();
+            return new Run(TransformerBenchmark.countMembers(familyRegister), () -> TransformerBenchmark.familiesToPersons(familyRegister, false, 0));
+        });
+        measure("LazyPersonsView (1% working set)", () -> lazyLookups(generator.createFamilyRegister(), 100));
+        measure("IncrementalModelTransformer listener", () -> {
+            Incremental models = new Incremental(generator).synchronize();
+            return new Run(IncrementalBenchmark.countElements(models), models::listen);
+        });
+        measure("IncrementalModelTransformer listener, STRUCTURE scope", () -> {
+            Incremental models = new Incremental(generator).synchronize();
+            return new Run(IncrementalBenchmark.countElements(models), () -> models.listen(ListenerScope.STRUCTURE));
+        });
+        measure("Per-element adapters (previous listeners)", () -> {
+            Incremental models = new Incremental(generator).synchronize();
+            return new Run(IncrementalBenchmark.countElements(models), () -> IncrementalBenchmark.attachPerElementAdapters(models));
+        });
+
+        FamilyMember[] members = new FamilyMember[links];
+        Person[] persons = new Person[links];
+        for (int i = 0; i < links; i++) {
+            members[i] = FamiliesFactory.eINSTANCE.createFamilyMember();
+            persons[i] = i % 2 == 0 ? PersonsFactory.eINSTANCE.createMale() : PersonsFactory.eINSTANCE.createFemale();
+        }
+        measure("Trace", () -> new Run(links, () -> {
+            Trace trace = new Trace();
+            for (int i = 0; i < links; i++) {
+                trace.link(members[i], persons[i]);
+            }
+            return trace;
+        }));
+        measure("Two ConcurrentHashMaps", () -> new Run(links, () -> {
+            Map<FamilyMember, Person> memberToPerson = new ConcurrentHashMap<>();
+            Map<Person, FamilyMember> personToMember = new ConcurrentHashMap<>();
+            for (int i = 0; i < links; i++) {
+                memberToPerson.put(members[i], persons[i]);
+                personToMember.put(persons[i], members[i]);
+            }
+            return List.of(memberToPerson, personToMember);
+        }));
+    }
+
+    private static void measure(String name, Supplier<Run> setUp) {
+        Run run = setUp.get();
+        long before = usedHeapAfterGc();
+        Object created = run.action().get();
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(run);
+        Reference.reachabilityFence(created);
+        System.out.printf("%-60s %12.1f%n", name, (double) (after - before) / run.elements());
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    // Creates a view and looks up every stride-th person by name, twice; per member of the register
+    private static Run lazyLookups(FamilyRegister familyRegister, int stride) {
+        List<String> names = new ArrayList<>();
+        int member = 0;
+        for (Family family : familyRegister.getFamilies()) {
+            for (FamilyMember familyMember : TransformerBenchmark.members(family)) {
+                if (member++ % stride == 0) {
+                    names.add(PersonNames.compose(family.getName(), familyMember.getName()));
+                }
+            }
+        }
+        return new Run(member, () -> {
+            LazyPersonsView view = new LazyPersonsView(familyRegister, names.size());
+            for (int pass = 0; pass < 2; pass++) {
+                for (String name : names) {
+                    view.getPerson(name);
+                }
+            }
+            return view;
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package de.university.hof.genai.f2p.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import Families.FamilyRegister;
+import Persons.PersonRegister;
+
+// The generated source models of a trial, shared by all benchmarks and only read by them. The
+// parameters are those of ModelGenerator and can be overridden with -p, e.g. -p families=100000.
+@State(Scope.Benchmark)
+public class GeneratedModels {
+
+	@Param("20000")
+	public int families;
+
+	@Param("2")
+	public int childrenPerFamily;
+
+	@Param("0.05")
+	public double nameCollisionShare;
+
+	@Param("0.01")
+	public double malformedShare;
+
+	public ModelGenerator generator;
+	public FamilyRegister familyRegister;
+	public PersonRegister personRegister;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        generator = new ModelGenerator(families, childrenPerFamily, nameCollisionShare, malformedShare, 42);
+        familyRegister = generator.createFamilyRegister();
+        personRegister = generator.createPersonRegister();
+    }
+}
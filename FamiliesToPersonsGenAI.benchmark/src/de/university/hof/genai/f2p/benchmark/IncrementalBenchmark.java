@@ -0,0 +1,271 @@
+package de.university.hof.genai.f2p.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Person;
+import Persons.PersonRegister;
+import Persons.PersonsFactory;
+import de.university.hof.genai.f2p.IncrementalModelTransformer;
+import de.university.hof.genai.f2p.IncrementalModelTransformer.ListenerScope;
+
+// The IncrementalModelTransformer on the generated models: propagation latency of single edits to
+// listened, synchronized models, and the one-off initial pass and listener attachment.
+//
+// The edits run in a steady state: every edit is undone by a later one, cycling over EDITS
+// elements spread over the whole register, so the models keep their size and no setup runs
+// between invocations. The one-off runs need fresh models per iteration; JMH counts the
+// allocation of that setup in gc.alloc.rate.norm, so subtract the setUpOnly benchmark of the
+// same state from them.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class IncrementalBenchmark {
+
+	// Number of families and persons the edits cycle over
+	private static final int EDITS = 1_000;
+
+	// Both models with the transformer, in sync after the initial pass
+	public static final class Incremental {
+		public final Resource familiesResource;
+		public final Resource personsResource;
+		public final FamilyRegister familyRegister;
+		public final PersonRegister personRegister;
+		public final IncrementalModelTransformer transformer;
+
+		public Incremental(ModelGenerator generator) {
+			ResourceSet resourceSet = ModelGenerator.createResourceSet();
+			familyRegister = generator.createFamilyRegister();
+			personRegister = PersonsFactory.eINSTANCE.createPersonRegister();
+			familiesResource = ModelGenerator.createResource(resourceSet, "Families.xmi", familyRegister);
+			personsResource = ModelGenerator.createResource(resourceSet, "Persons.xmi", personRegister);
+			transformer = new IncrementalModelTransformer(familiesResource, personsResource);
+		}
+
+		public Incremental synchronize() {
+			transformer.transformFamiliesToPersons(familyRegister, personRegister);
+			transformer.transformPersonsToFamilies(personRegister, familyRegister, true, true);
+			return this;
+		}
+
+		public Incremental listen() {
+			transformer.addFamilyRegisterListener(familyRegister, personRegister);
+			transformer.addPersonRegisterListener(personRegister, familyRegister);
+			return this;
+		}
+
+		public Incremental listen(ListenerScope listenerScope) {
+			transformer.setListenerScope(listenerScope);
+			return listen();
+		}
+	}
+
+	// Listened models and the edited elements with their original names, picked once per trial
+	@State(Scope.Benchmark)
+	public static class Edited {
+		public Incremental models;
+		public final Family[] families = new Family[EDITS];
+		public final String[] familyNames = new String[EDITS];
+		public final String[] fatherNames = new String[EDITS];
+		public final Person[] persons = new Person[EDITS];
+		public final String[] personNames = new String[EDITS];
+		private int next;
+
+		@Setup(Level.Trial)
+		public void setUp(GeneratedModels generated) {
+			models = new Incremental(generated.generator).synchronize().listen();
+			List<Family> familyList = models.familyRegister.getFamilies();
+			List<Person> personList = models.personRegister.getPersons();
+			for (int i = 0; i < EDITS; i++) {
+				families[i] = familyList.get((int) ((long) i * familyList.size() / EDITS));
+				familyNames[i] = families[i].getName();
+				fatherNames[i] = families[i].getFather().getName();
+				persons[i] = personList.get((int) ((long) i * personList.size() / EDITS));
+				personNames[i] = persons[i].getName();
+			}
+		}
+
+		// Index of the element to edit in this invocation
+		public int next() {
+			int i = next;
+			next = (i + 1) % EDITS;
+			return i;
+		}
+	}
+
+	// Models that are not synchronized yet, created for every iteration
+	@State(Scope.Benchmark)
+	public static class Unsynchronized {
+		public Incremental models;
+
+		@Setup(Level.Iteration)
+		public void setUp(GeneratedModels generated) {
+			models = new Incremental(generated.generator).listen();
+		}
+	}
+
+	// Synchronized models without listeners, created for every iteration
+	@State(Scope.Benchmark)
+	public static class Synchronized {
+		public Incremental models;
+
+		@Setup(Level.Iteration)
+		public void setUp(GeneratedModels generated) {
+			models = new Incremental(generated.generator).synchronize();
+		}
+	}
+
+    // Each rename is undone when the family comes up again
+    @Benchmark
+    public Family renameFamily(Edited edited) {
+        int i = edited.next();
+        Family family = edited.families[i];
+        family.setName(family.getName() == edited.familyNames[i] ? "Renamed" + i : edited.familyNames[i]);
+        return family;
+    }
+
+    @Benchmark
+    public FamilyMember renameMember(Edited edited) {
+        int i = edited.next();
+        FamilyMember father = edited.families[i].getFather();
+        father.setName(father.getName() == edited.fatherNames[i] ? edited.fatherNames[i] + "X" : edited.fatherNames[i]);
+        return father;
+    }
+
+    // Moves the member of the person to another family and back
+    @Benchmark
+    public Person renamePerson(Edited edited) {
+        int i = edited.next();
+        Person person = edited.persons[i];
+        person.setName(person.getName() == edited.personNames[i] ? "Moved" + i + ", " + i : edited.personNames[i]);
+        return person;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public Person addAndRemovePerson(Edited edited) {
+        int i = edited.next();
+        Person person = i % 2 == 0 ? PersonsFactory.eINSTANCE.createMale() : PersonsFactory.eINSTANCE.createFemale();
+        person.setName(edited.familyNames[i] + ", Added" + i);
+        List<Person> persons = edited.models.personRegister.getPersons();
+        persons.add(person);
+        persons.remove(person);
+        return person;
+    }
+
+    // The person is appended again, so the removals keep hitting persons all over the register
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public Person removeAndAddPerson(Edited edited) {
+        Person person = edited.persons[edited.next()];
+        List<Person> persons = edited.models.personRegister.getPersons();
+        persons.remove(person);
+        persons.add(person);
+        return person;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public Family removeAndAddFamily(Edited edited) {
+        Family family = edited.families[edited.next()];
+        List<Family> families = edited.models.familyRegister.getFamilies();
+        families.remove(family);
+        families.add(family);
+        return family;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public Incremental initialPass(Unsynchronized state) {
+        return state.models.synchronize();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public Incremental initialPassSetUpOnly(Unsynchronized state) {
+        return state.models;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public Incremental attachListener(Synchronized state) {
+        return state.models.listen();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public Incremental attachStructureListener(Synchronized state) {
+        return state.models.listen(ListenerScope.STRUCTURE);
+    }
+
+    // What the transformer attached before it used one tree listener, for comparison
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public Incremental attachPerElementAdapters(Synchronized state) {
+        return attachPerElementAdapters(state.models);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public Incremental attachSetUpOnly(Synchronized state) {
+        return state.models;
+    }
+
+    // An adapter per register and a new adapter per family, added to each of its members
+    static Incremental attachPerElementAdapters(Incremental models) {
+        models.familyRegister.eAdapters().add(new AdapterImpl());
+        models.personRegister.eAdapters().add(new AdapterImpl());
+        for (Family family : models.familyRegister.getFamilies()) {
+            Adapter familyMemberAdapter = new AdapterImpl();
+            for (FamilyMember familyMember : TransformerBenchmark.members(family)) {
+                familyMember.eAdapters().add(familyMemberAdapter);
+            }
+        }
+        return models;
+    }
+
+    static int countElements(Incremental models) {
+        return models.familyRegister.getFamilies().size() + TransformerBenchmark.countMembers(models.familyRegister)
+                + models.personRegister.getPersons().size();
+    }
+}
@@ -0,0 +1,121 @@
+package de.university.hof.genai.f2p.benchmark;
+
+import java.util.Random;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+
+import Families.FamiliesFactory;
+import Families.FamiliesPackage;
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Person;
+import Persons.PersonRegister;
+import Persons.PersonsFactory;
+import Persons.PersonsPackage;
+
+// Deterministic synthetic models: the same settings and seed always produce the same registers.
+//  - families: number of families (or of family names used for persons)
+//  - childrenPerFamily: average number of sons and daughters per family
+//  - nameCollisionShare: share of families that reuse the name of an earlier family
+//  - malformedShare: share of generated persons whose name has no "Family, Member" form
+public class ModelGenerator {
+
+	private static final String[] FIRST_NAMES = { "Anna", "Ben", "Clara", "David", "Emma", "Felix", "Greta",
+			"Hannes", "Ida", "Jonas", "Klara", "Lukas", "Mia", "Noah", "Olivia", "Paul" };
+
+	private final int families;
+	private final int childrenPerFamily;
+	private final double nameCollisionShare;
+	private final double malformedShare;
+	private final long seed;
+
+	public ModelGenerator(int families, int childrenPerFamily, double nameCollisionShare, double malformedShare, long seed) {
+		this.families = families;
+		this.childrenPerFamily = childrenPerFamily;
+		this.nameCollisionShare = nameCollisionShare;
+		this.malformedShare = malformedShare;
+		this.seed = seed;
+	}
+
+	public ModelGenerator scaled(int factor) {
+		return new ModelGenerator(families * factor, childrenPerFamily, nameCollisionShare, malformedShare, seed);
+	}
+
+	public int getFamilies() {
+		return families;
+	}
+
+	public FamilyRegister createFamilyRegister() {
+		Random random = new Random(seed);
+		FamilyRegister familyRegister = FamiliesFactory.eINSTANCE.createFamilyRegister();
+		for (int i = 0; i < families; i++) {
+			Family family = FamiliesFactory.eINSTANCE.createFamily();
+			family.setName(familyName(random, i));
+			family.setFather(member(random, i));
+			family.setMother(member(random, i));
+			int children = random.nextInt(2 * childrenPerFamily + 1);
+			for (int child = 0; child < children; child++) {
+				if (random.nextBoolean()) {
+					family.getSons().add(member(random, child));
+				} else {
+					family.getDaughters().add(member(random, child));
+				}
+			}
+			familyRegister.getFamilies().add(family);
+		}
+		return familyRegister;
+	}
+
+	public PersonRegister createPersonRegister() {
+		Random random = new Random(seed);
+		PersonRegister personRegister = PersonsFactory.eINSTANCE.createPersonRegister();
+		for (int i = 0; i < families; i++) {
+			String familyName = familyName(random, i);
+			int members = 2 + random.nextInt(2 * childrenPerFamily + 1);
+			for (int member = 0; member < members; member++) {
+				Person person = random.nextBoolean() ? PersonsFactory.eINSTANCE.createMale() : PersonsFactory.eINSTANCE.createFemale();
+				String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + member;
+				if (random.nextDouble() < malformedShare) {
+					person.setName(familyName + " " + firstName);
+				} else {
+					person.setName(familyName + ", " + firstName);
+				}
+				personRegister.getPersons().add(person);
+			}
+		}
+		return personRegister;
+	}
+
+	private String familyName(Random random, int index) {
+		if (index > 0 && random.nextDouble() < nameCollisionShare) {
+			return "Family" + random.nextInt(index);
+		}
+		return "Family" + index;
+	}
+
+	private static FamilyMember member(Random random, int index) {
+		FamilyMember member = FamiliesFactory.eINSTANCE.createFamilyMember();
+		member.setName(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + index);
+		return member;
+	}
+
+	public static ResourceSet createResourceSet() {
+		ResourceSet resourceSet = new ResourceSetImpl();
+		resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xmi", new XMIResourceFactoryImpl());
+		resourceSet.getPackageRegistry().put(FamiliesPackage.eNS_URI, FamiliesPackage.eINSTANCE);
+		resourceSet.getPackageRegistry().put(PersonsPackage.eNS_URI, PersonsPackage.eINSTANCE);
+		return resourceSet;
+	}
+
+	public static Resource createResource(ResourceSet resourceSet, String fileName, EObject root) {
+		Resource resource = resourceSet.createResource(URI.createFileURI(fileName));
+		resource.getContents().add(root);
+		return resource;
+	}
+}
@@ -0,0 +1,109 @@
+package de.university.hof.genai.f2p.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.university.hof.genai.f2p.ModelPersistence;
+import de.university.hof.genai.f2p.ModelPersistence.Format;
+
+// Save and load time of the Families and Persons models in every format of ModelPersistence,
+// compared with plain XMI saved and loaded without options. An operation saves or loads the
+// whole model; the file size and element count are printed at the end of each trial.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class PersistenceBenchmark {
+
+	// PLAIN is a bare XMI resource set, saved and loaded with no options
+	@State(Scope.Benchmark)
+	public static class SavedModel {
+		@Param({ "PLAIN", "XMI", "ZIPPED_XMI", "BINARY", "ZIPPED_BINARY" })
+		public String format;
+
+		@Param({ "Families", "Persons" })
+		public String model;
+
+		public ModelPersistence persistence;
+		public Resource resource;
+		public String filePath;
+		private Path directory;
+
+		@Setup(Level.Trial)
+		public void save(GeneratedModels models) throws IOException {
+			persistence = new ModelPersistence(format.equals("PLAIN") ? Format.XMI : Format.valueOf(format));
+			directory = Files.createTempDirectory("f2p-io");
+			filePath = directory.resolve(model + "." + format.toLowerCase() + ".model").toString();
+			EObject root = model.equals("Families") ? models.familyRegister : models.personRegister;
+			resource = persistence.createResourceSet().createResource(URI.createFileURI(filePath));
+			resource.getContents().add(EcoreUtil.copy(root));
+			PersistenceBenchmark.write(this);
+		}
+
+		public boolean isPlain() {
+			return format.equals("PLAIN");
+		}
+
+		@TearDown(Level.Trial)
+		public void delete() throws IOException {
+			System.out.printf("%n%s %s: %d bytes, %d elements%n", format, model, Files.size(Path.of(filePath)), countElements(resource.getContents().get(0)));
+			Files.delete(Path.of(filePath));
+			Files.delete(directory);
+		}
+	}
+
+    @Benchmark
+    public Resource save(SavedModel saved) throws IOException {
+        return write(saved);
+    }
+
+    @Benchmark
+    public Resource load(SavedModel saved) {
+        ResourceSet resourceSet = saved.persistence.createResourceSet();
+        if (saved.isPlain()) {
+            resourceSet.getLoadOptions().clear();
+        }
+        return saved.persistence.load(resourceSet, saved.filePath);
+    }
+
+    private static Resource write(SavedModel saved) throws IOException {
+        if (saved.isPlain()) {
+            saved.resource.save(null);
+        } else {
+            saved.persistence.save(saved.resource, saved.filePath);
+        }
+        return saved.resource;
+    }
+
+    // Model elements, registers excluded
+    private static int countElements(EObject root) {
+        int count = 0;
+        for (TreeIterator<EObject> iterator = root.eAllContents(); iterator.hasNext(); iterator.next()) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,131 @@
+package de.university.hof.genai.f2p.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Families.FamiliesFactory;
+import Families.FamilyMember;
+import Persons.Person;
+import Persons.PersonsFactory;
+import de.university.hof.genai.f2p.Trace;
+
+// Throughput of the Trace compared with the pair of ConcurrentHashMaps the incremental
+// transformer used before. Operations are links; lookups and removals go both ways.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(TraceBenchmark.LINKS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class TraceBenchmark {
+
+	static final int LINKS = 1_000_000;
+
+	// The linked elements, and a filled Trace and pair of maps holding them
+	@State(Scope.Benchmark)
+	public static class Links {
+		public final FamilyMember[] members = new FamilyMember[LINKS];
+		public final Person[] persons = new Person[LINKS];
+		public final Trace trace = new Trace();
+		public final Map<FamilyMember, Person> memberToPerson = new ConcurrentHashMap<>();
+		public final Map<Person, FamilyMember> personToMember = new ConcurrentHashMap<>();
+
+		@Setup(Level.Trial)
+		public void link() {
+			for (int i = 0; i < LINKS; i++) {
+				members[i] = FamiliesFactory.eINSTANCE.createFamilyMember();
+				persons[i] = i % 2 == 0 ? PersonsFactory.eINSTANCE.createMale() : PersonsFactory.eINSTANCE.createFemale();
+				trace.link(members[i], persons[i]);
+				memberToPerson.put(members[i], persons[i]);
+				personToMember.put(persons[i], members[i]);
+			}
+		}
+	}
+
+    // Into a new Trace, so its growth is included
+    @Benchmark
+    public Trace traceLink(Links links) {
+        Trace trace = new Trace();
+        for (int i = 0; i < LINKS; i++) {
+            trace.link(links.members[i], links.persons[i]);
+        }
+        return trace;
+    }
+
+    @Benchmark
+    public Map<Person, FamilyMember> mapsPut(Links links) {
+        Map<FamilyMember, Person> memberToPerson = new ConcurrentHashMap<>();
+        Map<Person, FamilyMember> personToMember = new ConcurrentHashMap<>();
+        for (int i = 0; i < LINKS; i++) {
+            memberToPerson.put(links.members[i], links.persons[i]);
+            personToMember.put(links.persons[i], links.members[i]);
+        }
+        return personToMember;
+    }
+
+    @Benchmark
+    public int traceLookup(Links links) {
+        int found = 0;
+        for (int i = 0; i < LINKS; i++) {
+            found += links.trace.getPerson(links.members[i]) == links.persons[i] && links.trace.getFamilyMember(links.persons[i]) == links.members[i] ? 1 : 0;
+        }
+        return check(found);
+    }
+
+    @Benchmark
+    public int mapsGet(Links links) {
+        int found = 0;
+        for (int i = 0; i < LINKS; i++) {
+            found += links.memberToPerson.get(links.members[i]) == links.persons[i] && links.personToMember.get(links.persons[i]) == links.members[i] ? 1 : 0;
+        }
+        return check(found);
+    }
+
+    // Every link is removed and added again, so the filled Trace can be reused
+    @Benchmark
+    @OperationsPerInvocation(2 * LINKS)
+    public Trace traceUnlinkAndLink(Links links) {
+        for (int i = 0; i < LINKS; i++) {
+            links.trace.unlinkPerson(links.persons[i]);
+        }
+        for (int i = 0; i < LINKS; i++) {
+            links.trace.link(links.members[i], links.persons[i]);
+        }
+        return links.trace;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * LINKS)
+    public Map<Person, FamilyMember> mapsRemoveAndPut(Links links) {
+        for (int i = 0; i < LINKS; i++) {
+            links.personToMember.remove(links.persons[i]);
+            links.memberToPerson.remove(links.members[i]);
+        }
+        for (int i = 0; i < LINKS; i++) {
+            links.memberToPerson.put(links.members[i], links.persons[i]);
+            links.personToMember.put(links.persons[i], links.members[i]);
+        }
+        return links.personToMember;
+    }
+
+    private static int check(int found) {
+        if (found != LINKS) {
+            throw new IllegalStateException("Lost links: " + (LINKS - found));
+        }
+        return found;
+    }
+}
@@ -0,0 +1,192 @@
+package de.university.hof.genai.f2p.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Families.FamiliesFactory;
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Person;
+import Persons.PersonRegister;
+import Persons.PersonsFactory;
+import de.university.hof.genai.f2p.LazyPersonsView;
+import de.university.hof.genai.f2p.ModelTransformer;
+import de.university.hof.genai.f2p.PersonNames;
+
+// Whole-register runs of the batch ModelTransformer, the LazyPersonsView and the person name
+// parsing on the generated models. Each invocation transforms into a new, empty target, so the
+// time and gc.alloc.rate.norm of an operation are those of one complete run over the register.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class TransformerBenchmark {
+
+	// The person register at one, two and four times the generated size; the time per run
+	// doubles with the factor when the transformation is linear in the register size
+	@State(Scope.Benchmark)
+	public static class ScaledPersons {
+		@Param({ "1", "2", "4" })
+		public int factor;
+
+		public PersonRegister personRegister;
+
+		@Setup(Level.Trial)
+		public void generate(GeneratedModels models) {
+			personRegister = models.generator.scaled(factor).createPersonRegister();
+		}
+	}
+
+	// Every hundredth person name of the register, looked up in the lazy view
+	@State(Scope.Benchmark)
+	public static class WorkingSet {
+		public final List<String> names = new ArrayList<>();
+
+		@Setup(Level.Trial)
+		public void pick(GeneratedModels models) {
+			int member = 0;
+			for (Family family : models.familyRegister.getFamilies()) {
+				for (FamilyMember familyMember : members(family)) {
+					if (member++ % 100 == 0) {
+						names.add(PersonNames.compose(family.getName(), familyMember.getName()));
+					}
+				}
+			}
+		}
+	}
+
+	// The names of all generated persons
+	@State(Scope.Benchmark)
+	public static class Names {
+		public final List<String> names = new ArrayList<>();
+
+		@Setup(Level.Trial)
+		public void collect(GeneratedModels models) {
+			for (Person person : models.personRegister.getPersons()) {
+				names.add(person.getName());
+			}
+		}
+	}
+
+    @Benchmark
+    public PersonRegister familiesToPersons(GeneratedModels models) {
+        return familiesToPersons(models.familyRegister, false, 0);
+    }
+
+    @Benchmark
+    public PersonRegister familiesToPersonsBulk(GeneratedModels models) {
+        return familiesToPersons(models.familyRegister, true, 0);
+    }
+
+    @Benchmark
+    public PersonRegister familiesToPersonsParallel(GeneratedModels models) {
+        return familiesToPersons(models.familyRegister, false, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public FamilyRegister personsToFamilies(ScaledPersons persons) {
+        FamilyRegister familyRegister = FamiliesFactory.eINSTANCE.createFamilyRegister();
+        new ModelTransformer(null, null).transformPersonsToFamilies(persons.personRegister, familyRegister, true, true);
+        return familyRegister;
+    }
+
+    // Creates a view, looks up the working set twice and detaches the view again. Compare with
+    // familiesToPersons, which creates the persons of the whole register.
+    @Benchmark
+    public int lazyLookups(GeneratedModels models, WorkingSet workingSet) {
+        LazyPersonsView view = new LazyPersonsView(models.familyRegister, workingSet.names.size());
+        int found = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (String name : workingSet.names) {
+                found += view.getPerson(name) != null ? 1 : 0;
+            }
+        }
+        view.dispose();
+        return found;
+    }
+
+    @Benchmark
+    public List<String> parseNamesWithSplit(Names names) {
+        List<String> parts = new ArrayList<>(2 * names.names.size());
+        for (String name : names.names) {
+            String[] nameParts = name.split(", ");
+            if (nameParts.length == 2) {
+                parts.add(nameParts[0]);
+                parts.add(nameParts[1]);
+            }
+        }
+        return parts;
+    }
+
+    @Benchmark
+    public List<String> parseNamesWithParser(Names names) {
+        return parseNames(names.names, new PersonNames.Parser(false));
+    }
+
+    @Benchmark
+    public List<String> parseNamesWithParserDeduplicated(Names names) {
+        return parseNames(names.names, new PersonNames.Parser(true));
+    }
+
+    static PersonRegister familiesToPersons(FamilyRegister familyRegister, boolean bulk, int parallelism) {
+        PersonRegister personRegister = PersonsFactory.eINSTANCE.createPersonRegister();
+        ModelTransformer transformer = new ModelTransformer(null, null);
+        transformer.setBulkMode(bulk);
+        if (parallelism > 0) {
+            transformer.transformFamiliesToPersons(familyRegister, personRegister, parallelism);
+        } else {
+            transformer.transformFamiliesToPersons(familyRegister, personRegister);
+        }
+        return personRegister;
+    }
+
+    // Keeps the parts like the transformation does, so none of them can be optimized away
+    private static List<String> parseNames(List<String> names, PersonNames.Parser parser) {
+        List<String> parts = new ArrayList<>(2 * names.size());
+        for (String name : names) {
+            if (parser.parse(name)) {
+                parts.add(parser.getFamilyName());
+                parts.add(parser.getMemberName());
+            }
+        }
+        return parts;
+    }
+
+    static List<FamilyMember> members(Family family) {
+        List<FamilyMember> members = new ArrayList<>();
+        if (family.getFather() != null) {
+            members.add(family.getFather());
+        }
+        if (family.getMother() != null) {
+            members.add(family.getMother());
+        }
+        members.addAll(family.getSons());
+        members.addAll(family.getDaughters());
+        return members;
+    }
+
+    public static int countMembers(FamilyRegister familyRegister) {
+        int count = 0;
+        for (Family family : familyRegister.getFamilies()) {
+            count += (family.getFather() != null ? 1 : 0) + (family.getMother() != null ? 1 : 0);
+            count += family.getSons().size() + family.getDaughters().size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,102 @@
+package de.university.hof.genai.f2p;
+
+import static de.university.hof.genai.f2p.SyncedModels.family;
+import static de.university.hof.genai.f2p.SyncedModels.female;
+import static de.university.hof.genai.f2p.SyncedModels.male;
+import static de.university.hof.genai.f2p.SyncedModels.member;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Person;
+
+// Editors on several threads change both models through modify() at the same time; afterwards the
+// models have to be in sync and every edit has to be reflected in the other model
+class ConcurrentEditorsTest {
+
+	private static final int EDITORS = 8;
+	private static final int EDITS = 1_000;
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void noUpdateIsLost(boolean batching) throws Exception {
+        SyncedModels models = new SyncedModels(family("F0", "Adam", "Eve", List.of(), List.of())).batching(batching);
+        List<List<FamilyMember>> addedMembers = new ArrayList<>();
+        List<List<Person>> addedPersons = new ArrayList<>();
+        ExecutorService editors = Executors.newFixedThreadPool(EDITORS);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int editor = 0; editor < EDITORS; editor++) {
+                List<FamilyMember> members = new ArrayList<>();
+                List<Person> persons = new ArrayList<>();
+                addedMembers.add(members);
+                addedPersons.add(persons);
+                int id = editor;
+                results.add(editors.submit(() -> edit(models, id, members, persons)));
+            }
+            for (Future<?> result : results) {
+                result.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            editors.shutdownNow();
+        }
+
+        models.assertInSync();
+        for (List<FamilyMember> members : addedMembers) {
+            for (FamilyMember member : members) {
+                assertNotNull(models.transformer.getPerson(member), member.getName());
+            }
+        }
+        int added = 0;
+        for (List<Person> persons : addedPersons) {
+            for (Person person : persons) {
+                assertEquals(models.personRegister, person.eContainer(), person.getName());
+                assertNotNull(models.transformer.getFamilyMember(person), person.getName());
+                added++;
+            }
+        }
+        // Members added to families and persons added to the register each got their counterpart
+        int members = 0;
+        for (List<FamilyMember> list : addedMembers) {
+            members += list.size();
+        }
+        assertEquals(2 + members + added, models.personRegister.getPersons().size());
+    }
+
+    private static void edit(SyncedModels models, int editor, List<FamilyMember> members, List<Person> persons) {
+        Random random = new Random(editor);
+        FamilyRegister familyRegister = models.familyRegister;
+        for (int i = 0; i < EDITS; i++) {
+            String name = "n" + editor + "_" + i;
+            int kind = random.nextInt(4);
+            models.transformer.modify(() -> {
+                if (kind == 0) {
+                    Family family = familyRegister.getFamilies().get(random.nextInt(familyRegister.getFamilies().size()));
+                    FamilyMember son = member(name);
+                    family.getSons().add(son);
+                    members.add(son);
+                } else if (kind == 1 && !persons.isEmpty()) {
+                    // Moves one of the own persons to another family; it stays in the register
+                    persons.get(random.nextInt(persons.size())).setName("F" + random.nextInt(50) + ", " + name);
+                } else {
+                    Person person = random.nextBoolean() ? male("F" + random.nextInt(50) + ", " + name) : female("F" + random.nextInt(50) + ", " + name);
+                    models.personRegister.getPersons().add(person);
+                    persons.add(person);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package de.university.hof.genai.f2p;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import Families.FamiliesFactory;
+import Families.Family;
+import Families.FamilyRegister;
+
+// An attached FamilyIndex following renames, removals and families sharing a name
+class FamilyIndexTest {
+
+	private FamilyRegister familyRegister;
+	private Family simpson;
+	private Family flanders;
+	private Family otherSimpson;
+	private FamilyIndex index;
+
+    @BeforeEach
+    void attach() {
+        familyRegister = FamiliesFactory.eINSTANCE.createFamilyRegister();
+        simpson = family("Simpson");
+        flanders = family("Flanders");
+        otherSimpson = family("Simpson");
+        familyRegister.getFamilies().addAll(List.of(simpson, flanders, otherSimpson));
+        index = FamilyIndex.attach(familyRegister);
+    }
+
+    private static Family family(String name) {
+        Family family = FamiliesFactory.eINSTANCE.createFamily();
+        family.setName(name);
+        return family;
+    }
+
+    @Test
+    void findsTheFirstFamilyOfAName() {
+        assertSame(simpson, index.get("Simpson"));
+        assertSame(flanders, index.get("Flanders"));
+        assertNull(index.get("Griffin"));
+    }
+
+    @Test
+    void renamesMoveFamiliesBetweenNames() {
+        flanders.setName("Griffin");
+        assertNull(index.get("Flanders"));
+        assertSame(flanders, index.get("Griffin"));
+
+        // The second Simpson family takes over the name of the renamed first one
+        simpson.setName("Bouvier");
+        assertSame(simpson, index.get("Bouvier"));
+        assertSame(otherSimpson, index.get("Simpson"));
+
+        // A family renamed to a name already taken waits behind the family that has it
+        simpson.setName("Simpson");
+        assertSame(otherSimpson, index.get("Simpson"));
+        otherSimpson.setName(null);
+        assertSame(simpson, index.get("Simpson"));
+    }
+
+    @Test
+    void removedFamiliesAreForgotten() {
+        familyRegister.getFamilies().remove(simpson);
+        assertSame(otherSimpson, index.get("Simpson"));
+        familyRegister.getFamilies().removeAll(List.of(flanders, otherSimpson));
+        assertNull(index.get("Simpson"));
+        assertNull(index.get("Flanders"));
+
+        // Removed families are no longer listened to
+        assertFalse(simpson.eAdapters().contains(index));
+        simpson.setName("Flanders");
+        assertNull(index.get("Flanders"));
+    }
+
+    @Test
+    void removedDuplicatesDoNotTakeOver() {
+        Family thirdSimpson = family("Simpson");
+        familyRegister.getFamilies().add(thirdSimpson);
+        familyRegister.getFamilies().remove(otherSimpson);
+        familyRegister.getFamilies().remove(simpson);
+        assertSame(thirdSimpson, index.get("Simpson"));
+    }
+
+    @Test
+    void addedAndReplacedFamiliesAreIndexedAndListenedTo() {
+        Family griffin = family("Griffin");
+        Family smith = family("Smith");
+        familyRegister.getFamilies().addAll(List.of(griffin, smith));
+        assertSame(griffin, index.get("Griffin"));
+        smith.setName("Smiths");
+        assertSame(smith, index.get("Smiths"));
+
+        Family vanHouten = family("Van Houten");
+        familyRegister.getFamilies().set(1, vanHouten);
+        assertNull(index.get("Flanders"));
+        assertSame(vanHouten, index.get("Van Houten"));
+    }
+
+    @Test
+    void detachedIndexNoLongerChanges() {
+        index.detach();
+        flanders.setName("Griffin");
+        familyRegister.getFamilies().remove(simpson);
+        assertSame(flanders, index.get("Flanders"));
+        assertSame(simpson, index.get("Simpson"));
+        assertFalse(familyRegister.eAdapters().contains(index));
+    }
+}
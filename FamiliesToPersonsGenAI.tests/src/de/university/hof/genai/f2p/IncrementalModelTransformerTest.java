@@ -0,0 +1,217 @@
+package de.university.hof.genai.f2p;
+
+import static de.university.hof.genai.f2p.SyncedModels.family;
+import static de.university.hof.genai.f2p.SyncedModels.female;
+import static de.university.hof.genai.f2p.SyncedModels.male;
+import static de.university.hof.genai.f2p.SyncedModels.member;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import Families.FamiliesFactory;
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Person;
+import de.university.hof.genai.f2p.IncrementalModelTransformer.ListenerScope;
+
+// Propagation of single and bulk edits, each run with and without batching
+class IncrementalModelTransformerTest {
+
+	private static SyncedModels simpsons(boolean batching) {
+		return new SyncedModels(
+				family("Simpson", "Homer", "Marge", List.of("Bart"), List.of("Lisa", "Maggie")),
+				family("Flanders", "Ned", null, List.of("Rod", "Todd"), List.of()))
+				.batching(batching);
+	}
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void initialTransformationLinksEveryMember(boolean batching) {
+        SyncedModels models = simpsons(batching);
+        models.assertInSync();
+        assertEquals(8, models.personRegister.getPersons().size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void addAllFamilies(boolean batching) {
+        SyncedModels models = simpsons(batching);
+        models.familyRegister.getFamilies().addAll(List.of(
+                family("Griffin", "Peter", "Lois", List.of("Chris"), List.of("Meg")),
+                family("Smith", null, "Francine", List.of(), List.of("Hayley"))));
+        models.assertInSync();
+        assertTrue(models.persons().contains("Female Smith, Hayley"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void addAllSons(boolean batching) {
+        SyncedModels models = simpsons(batching);
+        models.familyRegister.getFamilies().get(1).getSons().addAll(List.of(member("Rex"), member("Max")));
+        models.assertInSync();
+        assertTrue(models.persons().containsAll(List.of("Male Flanders, Rex", "Male Flanders, Max")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void addAllPersons(boolean batching) {
+        SyncedModels models = simpsons(batching);
+        models.personRegister.getPersons().addAll(List.of(male("Simpson, Abe"), female("Bouvier, Patty"), female("Bouvier, Selma")));
+        models.assertInSync();
+        assertTrue(models.members().containsAll(List.of("Simpson sons Abe", "Bouvier mother Patty", "Bouvier daughters Selma")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void clearSons(boolean batching) {
+        SyncedModels models = simpsons(batching);
+        models.familyRegister.getFamilies().get(1).getSons().clear();
+        models.assertInSync();
+        assertEquals(6, models.persons().size());
+        assertTrue(models.persons().contains("Male Flanders, Ned"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void clearFamilies(boolean batching) {
+        SyncedModels models = simpsons(batching);
+        models.familyRegister.getFamilies().clear();
+        models.assertInSync();
+        assertEquals(List.of(), models.persons());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void removeAllPersons(boolean batching) {
+        SyncedModels models = simpsons(batching);
+        List<Person> persons = models.personRegister.getPersons();
+        models.personRegister.getPersons().removeAll(List.of(persons.get(0), persons.get(2), persons.get(6)));
+        models.assertInSync();
+        assertEquals(5, models.members().size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void bulkModeTransformationIntoListenedRegister(boolean batching) {
+        // The bulk ModelTransformer adds all persons at once and only sends one ADD_MANY
+        SyncedModels models = simpsons(batching);
+        FamilyRegister others = FamiliesFactory.eINSTANCE.createFamilyRegister();
+        others.getFamilies().add(family("Griffin", "Peter", "Lois", List.of("Chris", "Stewie"), List.of("Meg")));
+        ModelTransformer bulk = new ModelTransformer(null, null);
+        bulk.setBulkMode(true);
+        bulk.transformFamiliesToPersons(others, models.personRegister);
+        models.assertInSync();
+        assertTrue(models.members().contains("Griffin sons Stewie"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void renameFamilyAndMovePerson(boolean batching) {
+        SyncedModels models = simpsons(batching);
+        Family simpson = models.familyRegister.getFamilies().get(0);
+        simpson.setName("Simpsons");
+        models.transformer.getPerson(simpson.getSons().get(0)).setName("Flanders, Bart");
+        models.assertInSync();
+        assertTrue(models.members().contains("Flanders sons Bart"));
+        assertTrue(models.persons().contains("Female Simpsons, Maggie"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void removeMemberThroughRoleReplacement(boolean batching) {
+        SyncedModels models = simpsons(batching);
+        Family simpson = models.familyRegister.getFamilies().get(0);
+        Person homer = models.transformer.getPerson(simpson.getFather());
+        simpson.setFather(member("Abe"));
+        models.assertInSync();
+        assertNull(homer.eContainer());
+    }
+
+    @Test
+    void batchedAndImmediatePropagationGiveTheSameModels() {
+        SyncedModels immediate = simpsons(false);
+        SyncedModels batched = simpsons(true);
+        for (SyncedModels models : List.of(immediate, batched)) {
+            editScript().accept(models);
+            models.transformer.flush();
+        }
+        immediate.assertInSync();
+        batched.assertInSync();
+        assertEquals(immediate.members(), batched.members());
+        assertEquals(immediate.persons(), batched.persons());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void structureScopeGivesTheModelsOfTheFullListener(boolean batching) {
+        SyncedModels full = simpsons(false);
+        SyncedModels structure = new SyncedModels(ListenerScope.STRUCTURE,
+                family("Simpson", "Homer", "Marge", List.of("Bart"), List.of("Lisa", "Maggie")),
+                family("Flanders", "Ned", null, List.of(), List.of()))
+                .batching(batching);
+        structure.familyRegister.getFamilies().get(1).getSons().addAll(List.of(member("Rod"), member("Todd")));
+        for (SyncedModels models : List.of(full, structure)) {
+            editScript().accept(models);
+            models.transformer.flush();
+        }
+        structure.assertInSync();
+        assertEquals(full.members(), structure.members());
+        assertEquals(full.persons(), structure.persons());
+
+        // Only the registers and families carry the listener (and the family index)
+        for (Family family : structure.familyRegister.getFamilies()) {
+            assertFalse(family.eAdapters().isEmpty(), family.getName());
+            for (FamilyMember member : IncrementalModelTransformer.getMembers(family)) {
+                assertTrue(member.eAdapters().isEmpty(), member.getName());
+            }
+        }
+        for (Person person : structure.personRegister.getPersons()) {
+            assertTrue(person.eAdapters().isEmpty(), person.getName());
+        }
+    }
+
+    @Test
+    void listenerScopeIsFixedOnceListening() {
+        SyncedModels models = simpsons(false);
+        assertThrows(IllegalStateException.class, () -> models.transformer.setListenerScope(ListenerScope.STRUCTURE));
+    }
+
+    // Single and bulk edits to both models. Persons are picked by name, as their order depends on
+    // when removals are propagated. Members and persons are renamed through the transformer, so
+    // the script also runs with the STRUCTURE listener scope.
+    private static Consumer<SyncedModels> editScript() {
+        return models -> {
+            List<Family> families = models.familyRegister.getFamilies();
+            List<Person> persons = models.personRegister.getPersons();
+            families.addAll(List.of(family("Griffin", "Peter", "Lois", List.of("Chris"), List.of("Meg")),
+                    family("Smith", "Stan", null, List.of(), List.of())));
+            families.get(0).getDaughters().clear();
+            families.get(1).setName("Flanders2");
+            families.get(1).getSons().addAll(List.of(member("Rex"), member("Max")));
+            persons.addAll(List.of(male("Griffin, Stewie"), female("Smith, Francine"), male("Nobody")));
+            models.transformer.rename(person(models, "Simpson, Homer"), "Griffin, Homer");
+            families.remove(1);
+            models.transformer.rename(families.get(1).getFather(), "Pete");
+            persons.removeAll(List.of(person(models, "Griffin, Stewie"), person(models, "Nobody")));
+        };
+    }
+
+    private static Person person(SyncedModels models, String name) {
+        for (Person person : models.personRegister.getPersons()) {
+            if (name.equals(person.getName())) {
+                return person;
+            }
+        }
+        throw new AssertionError("No person " + name);
+    }
+}
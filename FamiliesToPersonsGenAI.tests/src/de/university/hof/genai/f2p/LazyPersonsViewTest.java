@@ -0,0 +1,200 @@
+package de.university.hof.genai.f2p;
+
+import static de.university.hof.genai.f2p.SyncedModels.family;
+import static de.university.hof.genai.f2p.SyncedModels.member;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import Families.FamiliesFactory;
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Female;
+import Persons.Male;
+import Persons.Person;
+
+// The cache of a LazyPersonsView: least recently used persons are evicted, edits drop the
+// persons they change, and members and families are only adapted while they are cached
+class LazyPersonsViewTest {
+
+	private FamilyRegister familyRegister;
+	private Family simpsons;
+	private Family flanders;
+
+    @BeforeEach
+    void createRegister() {
+        familyRegister = FamiliesFactory.eINSTANCE.createFamilyRegister();
+        simpsons = family("Simpson", "Homer", "Marge", List.of("Bart"), List.of("Lisa", "Maggie"));
+        flanders = family("Flanders", "Ned", "Maude", List.of("Rod", "Todd"), List.of());
+        familyRegister.getFamilies().addAll(List.of(simpsons, flanders));
+    }
+
+    private static boolean adapted(Family family) {
+        return !family.eAdapters().isEmpty();
+    }
+
+    private static boolean adapted(FamilyMember member) {
+        return !member.eAdapters().isEmpty();
+    }
+
+    @Test
+    void capacityBelowOneIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new LazyPersonsView(familyRegister, 0));
+    }
+
+    @Test
+    void leastRecentlyUsedPersonsAreEvicted() {
+        LazyPersonsView view = new LazyPersonsView(familyRegister, 2);
+        FamilyMember homer = simpsons.getFather();
+        FamilyMember marge = simpsons.getMother();
+        FamilyMember ned = flanders.getFather();
+        Person homerPerson = view.getPerson(homer);
+        Person margePerson = view.getPerson(marge);
+        assertInstanceOf(Male.class, homerPerson);
+        assertEquals("Simpson, Homer", homerPerson.getName());
+        assertInstanceOf(Female.class, margePerson);
+        assertTrue(adapted(homer) && adapted(marge) && adapted(simpsons));
+        assertFalse(adapted(flanders));
+
+        // Using Homer again makes Marge the eldest entry
+        assertSame(homerPerson, view.getPerson(homer));
+        Person nedPerson = view.getPerson(ned);
+        assertEquals(2, view.getCachedPersonCount());
+        assertFalse(adapted(marge));
+        assertTrue(adapted(flanders));
+        assertSame(homerPerson, view.getPerson(homer));
+        assertNotSame(margePerson, view.getPerson(marge));
+
+        // Ned was the eldest now; with him the last Flanders left the cache
+        assertEquals(2, view.getCachedPersonCount());
+        assertFalse(adapted(ned));
+        assertFalse(adapted(flanders));
+        assertNotSame(nedPerson, view.getPerson(ned));
+    }
+
+    @Test
+    void familyListsAreCachedWithinCapacity() {
+        LazyPersonsView view = new LazyPersonsView(familyRegister, 3);
+        List<Person> persons = view.getPersons("Simpson");
+        assertEquals(List.of("Simpson, Homer", "Simpson, Marge", "Simpson, Bart", "Simpson, Lisa", "Simpson, Maggie"),
+                persons.stream().map(Person::getName).toList());
+        assertEquals(3, view.getCachedPersonCount());
+        // Only the last three are still cached
+        assertFalse(adapted(simpsons.getFather()) || adapted(simpsons.getMother()));
+        assertSame(persons.get(4), view.getPerson("Simpson, Maggie"));
+        assertNotSame(persons.get(0), view.getPerson("Simpson, Homer"));
+        assertNull(view.getPerson("Simpson Homer"));
+        assertNull(view.getPerson("Griffin, Peter"));
+        assertTrue(view.getPersons("Griffin").isEmpty());
+    }
+
+    @Test
+    void renamesDropTheRenamedPersons() {
+        LazyPersonsView view = new LazyPersonsView(familyRegister, 10);
+        FamilyMember homer = simpsons.getFather();
+        Person homerPerson = view.getPerson(homer);
+        Person nedPerson = view.getPerson(flanders.getFather());
+        homer.setName("Homer Jay");
+        assertEquals("Simpson, Homer Jay", view.getPerson(homer).getName());
+        assertNotSame(homerPerson, view.getPerson(homer));
+        assertSame(nedPerson, view.getPerson(flanders.getFather()));
+
+        // A family rename drops all its members, and the name index follows it
+        Person margePerson = view.getPerson("Simpson, Marge");
+        simpsons.setName("Bouvier");
+        assertNull(view.getPerson("Simpson, Marge"));
+        Person renamed = view.getPerson("Bouvier, Marge");
+        assertNotSame(margePerson, renamed);
+        assertEquals("Bouvier, Marge", renamed.getName());
+        assertSame(nedPerson, view.getPerson(flanders.getFather()));
+    }
+
+    @Test
+    void roleAndFamilyChangesDropTheMovedPersons() {
+        LazyPersonsView view = new LazyPersonsView(familyRegister, 10);
+        FamilyMember bart = simpsons.getSons().get(0);
+        assertInstanceOf(Male.class, view.getPerson(bart));
+        simpsons.getDaughters().add(bart);
+        assertInstanceOf(Female.class, view.getPerson(bart));
+
+        // Moving within a role keeps the person
+        Person lisa = view.getPerson(simpsons.getDaughters().get(0));
+        simpsons.getDaughters().move(2, 0);
+        assertSame(lisa, view.getPerson(simpsons.getDaughters().get(2)));
+
+        FamilyMember todd = flanders.getSons().get(1);
+        Person toddPerson = view.getPerson(todd);
+        simpsons.getSons().add(todd);
+        assertEquals("Simpson, Todd", view.getPerson(todd).getName());
+        assertNotSame(toddPerson, view.getPerson(todd));
+
+        // A replaced father is no longer in the register
+        FamilyMember ned = flanders.getFather();
+        view.getPerson(ned);
+        flanders.setFather(member("Homer"));
+        assertNull(view.getPerson(ned));
+        assertFalse(adapted(ned));
+        assertEquals("Flanders, Homer", view.getPerson(flanders.getFather()).getName());
+    }
+
+    @Test
+    void removedFamiliesAreDroppedAndForgotten() {
+        LazyPersonsView view = new LazyPersonsView(familyRegister, 10);
+        Person marge = view.getPerson(simpsons.getMother());
+        view.getPersons(flanders);
+        familyRegister.getFamilies().remove(simpsons);
+        assertFalse(adapted(simpsons) || adapted(simpsons.getMother()));
+        assertNull(view.getPerson(simpsons.getMother()));
+        assertNull(view.getPerson("Simpson, Marge"));
+        assertEquals(4, view.getCachedPersonCount());
+
+        familyRegister.getFamilies().removeAll(List.of(flanders));
+        assertEquals(0, view.getCachedPersonCount());
+        assertFalse(adapted(flanders));
+
+        // Added back, the family gets new persons
+        familyRegister.getFamilies().add(simpsons);
+        assertNotSame(marge, view.getPerson(simpsons.getMother()));
+        assertEquals("Simpson, Marge", view.getPerson("Simpson, Marge").getName());
+    }
+
+    @Test
+    void unrelatedEditsKeepTheCache() {
+        LazyPersonsView view = new LazyPersonsView(familyRegister, 10);
+        Person homer = view.getPerson(simpsons.getFather());
+        simpsons.getSons().add(member("Hugo"));
+        flanders.setName("Van Houten");
+        familyRegister.getFamilies().add(family("Griffin", "Peter", null, List.of(), List.of()));
+        assertSame(homer, view.getPerson(simpsons.getFather()));
+        assertEquals(1, view.getCachedPersonCount());
+    }
+
+    @Test
+    void invalidateAllAndDisposeDetachTheView() {
+        LazyPersonsView view = new LazyPersonsView(familyRegister, 10);
+        Person homer = view.getPerson("Simpson, Homer");
+        view.getPersons(flanders);
+        view.invalidateAll();
+        assertEquals(0, view.getCachedPersonCount());
+        assertFalse(adapted(simpsons.getFather()) || adapted(flanders.getFather()));
+        // The families are only adapted by the name index now
+        assertEquals(1, simpsons.eAdapters().size());
+        assertEquals(1, flanders.eAdapters().size());
+        assertNotSame(homer, view.getPerson("Simpson, Homer"));
+
+        view.dispose();
+        assertTrue(familyRegister.eAdapters().isEmpty());
+        assertFalse(adapted(simpsons) || adapted(flanders) || adapted(simpsons.getFather()));
+    }
+}
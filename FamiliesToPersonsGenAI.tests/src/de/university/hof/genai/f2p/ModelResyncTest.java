@@ -0,0 +1,120 @@
+package de.university.hof.genai.f2p;
+
+import static de.university.hof.genai.f2p.SyncedModels.family;
+import static de.university.hof.genai.f2p.SyncedModels.female;
+import static de.university.hof.genai.f2p.SyncedModels.male;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import Families.FamiliesFactory;
+import Families.Family;
+import Families.FamilyRegister;
+import Persons.Person;
+import Persons.PersonRegister;
+import Persons.PersonsFactory;
+
+// Resyncing the live Families model with an edited copy of it
+class ModelResyncTest {
+
+	private SyncedModels models;
+	private ModelResync resync;
+
+    @BeforeEach
+    void synchronize() {
+        models = new SyncedModels(
+                family("Simpson", "Homer", "Marge", List.of("Bart"), List.of("Lisa", "Maggie")),
+                family("Flanders", "Ned", "Maude", List.of("Rod", "Todd"), List.of()),
+                family("Griffin", "Peter", "Lois", List.of("Chris", "Stewie"), List.of("Meg")),
+                family("Smith", "Stan", "Francine", List.of("Steve"), List.of("Hayley")));
+        resync = new ModelResync(models.transformer, models.familiesResource, models.personsResource);
+    }
+
+    private FamilyRegister reloaded() {
+        FamilyRegister register = FamiliesFactory.eINSTANCE.createFamilyRegister();
+        register.getFamilies().addAll(EcoreUtil.copyAll(models.familyRegister.getFamilies()));
+        return register;
+    }
+
+    private List<String> familyNames() {
+        List<String> names = new ArrayList<>();
+        for (Family family : models.familyRegister.getFamilies()) {
+            names.add(family.getName());
+        }
+        return names;
+    }
+
+    @Test
+    void renamedFamilyKeepsItsPersons() {
+        Family flanders = models.familyRegister.getFamilies().get(1);
+        Person ned = models.transformer.getPerson(flanders.getFather());
+        Date birthday = new Date(0);
+        ned.setBirthday(birthday);
+
+        FamilyRegister loaded = reloaded();
+        loaded.getFamilies().get(1).setName("Flanders2");
+        assertEquals(1, resync.resyncFamilies(loaded));
+
+        models.assertInSync();
+        assertSame(flanders, models.familyRegister.getFamilies().get(1));
+        assertSame(ned, models.transformer.getPerson(flanders.getFather()));
+        assertEquals("Flanders2, Ned", ned.getName());
+        assertEquals(birthday, ned.getBirthday());
+    }
+
+    @Test
+    void renamedFamilyWithTheMembersOfAnotherIsNotConfused() {
+        // Two families with the same members, one renamed and one removed
+        Family copy = family("Griffin", "Peter", "Lois", List.of("Chris", "Stewie"), List.of("Meg"));
+        copy.setName("Pewterschmidt");
+        models.familyRegister.getFamilies().add(copy);
+        FamilyRegister loaded = reloaded();
+        loaded.getFamilies().get(2).setName("Griffins");
+        loaded.getFamilies().remove(4);
+        resync.resyncFamilies(loaded);
+
+        models.assertInSync();
+        assertEquals(List.of("Simpson", "Flanders", "Griffins", "Smith"), familyNames());
+    }
+
+    @Test
+    void addedFamiliesAreInsertedAtTheirPosition() {
+        FamilyRegister loaded = reloaded();
+        loaded.getFamilies().add(0, family("Van Houten", "Kirk", "Luann", List.of("Milhouse"), List.of()));
+        loaded.getFamilies().add(3, family("Wiggum", "Clancy", "Sarah", List.of("Ralph"), List.of()));
+        loaded.getFamilies().remove(4);
+        loaded.getFamilies().add(family("Szyslak", "Moe", null, List.of(), List.of()));
+        List<String> expected = new ArrayList<>();
+        for (Family family : loaded.getFamilies()) {
+            expected.add(family.getName());
+        }
+        assertEquals(4, resync.resyncFamilies(loaded));
+
+        models.assertInSync();
+        assertEquals(expected, familyNames());
+    }
+
+    @Test
+    void addedPersonsAreInsertedAtTheirPosition() {
+        Person homer = models.personRegister.getPersons().get(0);
+        PersonRegister loaded = PersonsFactory.eINSTANCE.createPersonRegister();
+        loaded.getPersons().addAll(EcoreUtil.copyAll(models.personRegister.getPersons()));
+        loaded.getPersons().add(1, male("Simpson, Abe"));
+        loaded.getPersons().add(6, female("Flanders, Edna"));
+        loaded.getPersons().remove(8);
+        loaded.getPersons().add(female("Szyslak, Moe"));
+        List<String> expected = RandomModels.describe(loaded.getPersons());
+        assertEquals(4, resync.resyncPersons(loaded));
+
+        models.assertInSync();
+        assertEquals(expected, RandomModels.describe(models.personRegister.getPersons()));
+        assertSame(homer, models.personRegister.getPersons().get(0));
+    }
+}
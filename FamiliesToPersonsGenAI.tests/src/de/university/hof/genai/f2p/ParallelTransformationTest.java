@@ -0,0 +1,82 @@
+package de.university.hof.genai.f2p;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Person;
+import Persons.PersonRegister;
+import Persons.PersonsFactory;
+
+// The parallel Families -> Persons overloads give the persons of the sequential pass, in its order
+class ParallelTransformationTest {
+
+    private static ModelTransformer modelTransformer(boolean bulkMode) {
+        ModelTransformer transformer = new ModelTransformer(resource("Families.xmi"), resource("Persons.xmi"));
+        transformer.setBulkMode(bulkMode);
+        return transformer;
+    }
+
+    private static Resource resource(String fileName) {
+        return new XMIResourceImpl(URI.createFileURI(fileName));
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "1000, 2, false", "1000, 3, true", "1000, 8, false", "3, 8, false", "0, 4, true" })
+    void modelTransformerKeepsTheSequentialOrder(int families, int parallelism, boolean bulkMode) {
+        FamilyRegister familyRegister = RandomModels.familyRegister(families, 42);
+        PersonRegister sequential = PersonsFactory.eINSTANCE.createPersonRegister();
+        modelTransformer(bulkMode).transformFamiliesToPersons(familyRegister, sequential);
+        PersonRegister single = PersonsFactory.eINSTANCE.createPersonRegister();
+        modelTransformer(bulkMode).transformFamiliesToPersons(familyRegister, single, 1);
+        PersonRegister parallel = PersonsFactory.eINSTANCE.createPersonRegister();
+        modelTransformer(bulkMode).transformFamiliesToPersons(familyRegister, parallel, parallelism);
+
+        List<String> expected = RandomModels.describe(sequential.getPersons());
+        assertEquals(expected, RandomModels.describe(single.getPersons()));
+        assertEquals(expected, RandomModels.describe(parallel.getPersons()));
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "1000, 2", "1000, 8", "3, 8" })
+    void incrementalTransformerLinksTheSamePersons(int families, int parallelism) {
+        FamilyRegister familyRegister = RandomModels.familyRegister(families, 7);
+        IncrementalModelTransformer sequentialTransformer = new IncrementalModelTransformer(resource("Families.xmi"), resource("Persons.xmi"));
+        PersonRegister sequential = PersonsFactory.eINSTANCE.createPersonRegister();
+        sequentialTransformer.transformFamiliesToPersons(familyRegister, sequential);
+        IncrementalModelTransformer parallelTransformer = new IncrementalModelTransformer(resource("Families.xmi"), resource("Persons.xmi"));
+        PersonRegister parallel = PersonsFactory.eINSTANCE.createPersonRegister();
+        parallelTransformer.transformFamiliesToPersons(familyRegister, parallel, parallelism);
+
+        assertEquals(RandomModels.describe(sequential.getPersons()), RandomModels.describe(parallel.getPersons()));
+        // Members in register order are linked to the persons in register order
+        int index = 0;
+        for (Family family : familyRegister.getFamilies()) {
+            for (FamilyMember member : IncrementalModelTransformer.getMembers(family)) {
+                Person person = parallel.getPersons().get(index++);
+                assertSame(person, parallelTransformer.getPerson(member));
+                assertSame(member, parallelTransformer.getFamilyMember(person));
+            }
+        }
+        assertEquals(parallel.getPersons().size(), index);
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "0", "-1" })
+    void parallelismBelowOneIsRejected(int parallelism) {
+        FamilyRegister familyRegister = RandomModels.familyRegister(10, 1);
+        PersonRegister personRegister = PersonsFactory.eINSTANCE.createPersonRegister();
+        assertThrows(IllegalArgumentException.class, () -> modelTransformer(false).transformFamiliesToPersons(familyRegister, personRegister, parallelism));
+    }
+}
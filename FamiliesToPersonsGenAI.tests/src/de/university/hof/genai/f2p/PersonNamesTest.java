@@ -0,0 +1,57 @@
+package de.university.hof.genai.f2p;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// PersonNames.Parser accepts and splits person names exactly as name.split(", ") did
+class PersonNamesTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = { "Simpson, Homer", "Van Houten, Milhouse", ", Homer", "Simpson, ", "Simpson", "", ", ", ",", " , ",
+            "Simpson,Homer", "Simpson ,Homer", "Simpson,, Homer", "Simpson, , Homer", "Simpson, Homer, ", "Simpson, Homer, , ",
+            "Simpson, Homer,", "Simpson, Homer, Jay", "Simpson, Homer, , Jay", ", , ", ", Homer, ", "Simpson, , ", "Simpson, Homer ",
+            " Simpson,  Homer", "Simpson, Homer,  ", "Simpson, Homer, ,", "Simpson,  , ", "Simpson, \t", "Simpson, Homer\n, " })
+    void acceptsAndSplitsLikeStringSplit(String personName) {
+        String[] parts = personName.split(", ");
+        for (boolean deduplicate : new boolean[] { false, true }) {
+            PersonNames.Parser parser = new PersonNames.Parser(deduplicate);
+            assertEquals(parts.length == 2, parser.parse(personName), personName);
+            if (parts.length == 2) {
+                assertEquals(parts[0], parser.getFamilyName(), personName);
+                assertEquals(parts[1], parser.getMemberName(), personName);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void nullIsRejected(boolean deduplicate) {
+        assertFalse(new PersonNames.Parser(deduplicate).parse(null));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 31, 32, 33, 1000 })
+    void deduplicatedFamilyNamesAreSharedAcrossRehashes(int families) {
+        PersonNames.Parser parser = new PersonNames.Parser(true);
+        String[] firstSeen = new String[families];
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < families; i++) {
+                String personName = PersonNames.compose("Family" + i, "Member" + round);
+                assertTrue(parser.parse(personName));
+                String familyName = parser.getFamilyName();
+                assertEquals("Family" + i, familyName);
+                assertEquals("Member" + round, parser.getMemberName());
+                if (round == 0) {
+                    firstSeen[i] = familyName;
+                } else {
+                    assertSame(firstSeen[i], familyName);
+                }
+            }
+        }
+    }
+}
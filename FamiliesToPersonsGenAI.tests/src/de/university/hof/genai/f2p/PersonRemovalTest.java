@@ -0,0 +1,163 @@
+package de.university.hof.genai.f2p;
+
+import static de.university.hof.genai.f2p.SyncedModels.family;
+import static de.university.hof.genai.f2p.SyncedModels.female;
+import static de.university.hof.genai.f2p.SyncedModels.male;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import Families.Family;
+import Families.FamilyMember;
+import Persons.Person;
+
+// Persons removed by the transformation leave the others in their order, and the position hints
+// of the trace keep up with the register
+class PersonRemovalTest {
+
+	private static SyncedModels families(boolean batching) {
+		return new SyncedModels(
+				family("Simpson", "Homer", "Marge", List.of("Bart"), List.of("Lisa", "Maggie")),
+				family("Flanders", "Ned", "Maude", List.of("Rod", "Todd"), List.of()),
+				family("Griffin", "Peter", "Lois", List.of("Chris", "Stewie"), List.of("Meg")))
+				.batching(batching);
+	}
+
+	// Collects the notifications its targets send
+	private static final class Recorder extends AdapterImpl {
+		final List<Notification> notifications = new ArrayList<>();
+
+		@Override
+		public void notifyChanged(Notification notification) {
+			notifications.add(notification);
+		}
+	}
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void remainingPersonsKeepTheirOrderIdsAndAdapters(boolean batching) {
+        SyncedModels models = families(batching);
+        XMIResource resource = (XMIResource) models.personsResource;
+        List<Person> persons = new ArrayList<>(models.personRegister.getPersons());
+        Recorder recorder = new Recorder();
+        for (int i = 0; i < persons.size(); i++) {
+            resource.setID(persons.get(i), "person" + i);
+            persons.get(i).eAdapters().add(recorder);
+        }
+        Family simpsons = models.familyRegister.getFamilies().get(0);
+        List<Person> removed = new ArrayList<>();
+        for (FamilyMember member : IncrementalModelTransformer.getMembers(simpsons)) {
+            removed.add(models.transformer.getPerson(member));
+        }
+
+        models.familyRegister.getFamilies().remove(simpsons);
+        models.assertInSync();
+        List<Person> remaining = new ArrayList<>(persons);
+        remaining.removeAll(removed);
+        assertEquals(remaining, models.personRegister.getPersons());
+
+        for (int i = 0; i < persons.size(); i++) {
+            Person person = persons.get(i);
+            if (removed.contains(person)) {
+                assertNull(person.eContainer(), person.getName());
+            } else {
+                assertSame(person, resource.getEObject("person" + i), person.getName());
+                assertEquals("person" + i, resource.getID(person));
+            }
+        }
+        // Only the removed persons lost the listener, the others were not notified at all
+        for (Notification notification : recorder.notifications) {
+            assertTrue(removed.contains(notification.getNotifier()), ((Person) notification.getNotifier()).getName());
+        }
+
+        // The persons that moved up are still listened to
+        Family griffins = models.familyRegister.getFamilies().get(1);
+        Person peter = models.transformer.getPerson(griffins.getFather());
+        peter.setName("Griffin, Pete");
+        models.assertInSync();
+        assertEquals("Pete", griffins.getFather().getName());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void removalsKeepTheOrderOfTheRegister(boolean batching) {
+        SyncedModels models = families(batching);
+        Family flanders = models.familyRegister.getFamilies().get(1);
+        FamilyMember bart = models.familyRegister.getFamilies().get(0).getSons().get(0);
+        models.familyRegister.getFamilies().remove(flanders);
+        EcoreUtil.remove(bart);
+        models.familyRegister.getFamilies().get(1).getDaughters().clear();
+        models.assertInSync();
+        assertEquals(List.of("Male Simpson, Homer", "Female Simpson, Marge", "Female Simpson, Lisa", "Female Simpson, Maggie",
+                "Male Griffin, Peter", "Female Griffin, Lois", "Male Griffin, Chris", "Male Griffin, Stewie"),
+                RandomModels.describe(models.personRegister.getPersons()));
+    }
+
+    @Test
+    void personsAddedWhileBatchingGetPositionHintsOnFlush() {
+        SyncedModels models = families(true);
+        models.personRegister.getPersons().add(1, male("Simpson, Abe"));
+        models.personRegister.getPersons().addAll(List.of(male("Flanders, Jeff"), female("Griffin, Meg")));
+        models.personRegister.getPersons().move(0, 5);
+        models.transformer.flush();
+        List<Person> persons = models.personRegister.getPersons();
+        for (int i = 0; i < persons.size(); i++) {
+            assertEquals(i, models.transformer.getPositionHint(persons.get(i)), persons.get(i).getName());
+        }
+
+        // Removals find the persons from their hints
+        models.familyRegister.getFamilies().remove(0);
+        models.assertInSync();
+        assertEquals(List.of("Male Flanders, Ned", "Female Flanders, Maude", "Male Flanders, Rod", "Male Flanders, Todd",
+                "Male Griffin, Peter", "Female Griffin, Lois", "Male Griffin, Chris", "Male Griffin, Stewie", "Female Griffin, Meg",
+                "Male Flanders, Jeff", "Female Griffin, Meg"), RandomModels.describe(persons));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void removalsAfterOutsideShiftsStayInSync(boolean batching) {
+        SyncedModels models = families(batching);
+        models.personRegister.getPersons().remove(0);
+        models.personRegister.getPersons().move(0, models.personRegister.getPersons().size() - 1);
+        models.personRegister.getPersons().add(1, male("Flanders, Jeff"));
+        models.assertInSync();
+
+        while (!models.familyRegister.getFamilies().isEmpty()) {
+            models.familyRegister.getFamilies().remove(0);
+            models.assertInSync();
+        }
+        assertEquals(0, models.personRegister.getPersons().size());
+    }
+
+    // More persons are removed than positionOf looks back over, so the hints are recorded again
+    // on the way
+    @Test
+    void manyRemovalsKeepTheOrderOfTheRegister() {
+        SyncedModels models = new SyncedModels(RandomModels.familyRegister(1200, 5).getFamilies().toArray(new Family[0]));
+        List<Person> remaining = new ArrayList<>(models.personRegister.getPersons());
+        List<Family> families = new ArrayList<>(models.familyRegister.getFamilies());
+        for (int i = 0; i < families.size(); i += 2) {
+            for (FamilyMember member : IncrementalModelTransformer.getMembers(families.get(i))) {
+                remaining.remove(models.transformer.getPerson(member));
+            }
+            models.familyRegister.getFamilies().remove(families.get(i));
+        }
+        models.assertInSync();
+        assertEquals(remaining, models.personRegister.getPersons());
+        for (int i = 0; i < remaining.size(); i += 97) {
+            assertTrue(models.transformer.getPositionHint(remaining.get(i)) >= i, remaining.get(i).getName());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package de.university.hof.genai.f2p;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import Families.FamiliesFactory;
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Male;
+import Persons.Person;
+import Persons.PersonRegister;
+import Persons.PersonsFactory;
+
+// Seeded random registers for the tests that compare two ways of transforming the same input.
+// Some families share a name, some have no father or mother, and some person names are malformed.
+final class RandomModels {
+
+	private static final String[] FIRST_NAMES = { "Anna", "Ben", "Clara", "David", "Emma", "Felix", "Greta", "Hannes" };
+
+	private RandomModels() {
+	}
+
+    static FamilyRegister familyRegister(int families, long seed) {
+        Random random = new Random(seed);
+        FamilyRegister familyRegister = FamiliesFactory.eINSTANCE.createFamilyRegister();
+        for (int i = 0; i < families; i++) {
+            Family family = FamiliesFactory.eINSTANCE.createFamily();
+            family.setName(familyName(random, i));
+            if (random.nextInt(10) > 0) {
+                family.setFather(member(random));
+            }
+            if (random.nextInt(10) > 0) {
+                family.setMother(member(random));
+            }
+            for (int child = random.nextInt(5); child > 0; child--) {
+                (random.nextBoolean() ? family.getSons() : family.getDaughters()).add(member(random));
+            }
+            familyRegister.getFamilies().add(family);
+        }
+        return familyRegister;
+    }
+
+    static PersonRegister personRegister(int families, long seed) {
+        Random random = new Random(seed);
+        PersonRegister personRegister = PersonsFactory.eINSTANCE.createPersonRegister();
+        for (int i = 0; i < families; i++) {
+            String familyName = familyName(random, i);
+            for (int member = 1 + random.nextInt(5); member > 0; member--) {
+                Person person = random.nextBoolean() ? PersonsFactory.eINSTANCE.createMale() : PersonsFactory.eINSTANCE.createFemale();
+                String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                person.setName(random.nextInt(50) == 0 ? familyName + " " + firstName : familyName + ", " + firstName);
+                personRegister.getPersons().add(person);
+            }
+        }
+        return personRegister;
+    }
+
+    private static String familyName(Random random, int index) {
+        return index > 0 && random.nextInt(10) == 0 ? "Family" + random.nextInt(index) : "Family" + index;
+    }
+
+    private static FamilyMember member(Random random) {
+        FamilyMember member = FamiliesFactory.eINSTANCE.createFamilyMember();
+        member.setName(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+        return member;
+    }
+
+    // "Male Family3, Anna" per person, in register order
+    static List<String> describe(List<? extends Person> persons) {
+        List<String> described = new ArrayList<>(persons.size());
+        for (Person person : persons) {
+            described.add((person instanceof Male ? "Male " : "Female ") + person.getName());
+        }
+        return described;
+    }
+
+    // "Family3 father Anna" per member, in register and role order
+    static List<String> describe(FamilyRegister familyRegister) {
+        List<String> described = new ArrayList<>();
+        for (Family family : familyRegister.getFamilies()) {
+            for (FamilyMember member : IncrementalModelTransformer.getMembers(family)) {
+                described.add(family.getName() + " " + member.eContainmentFeature().getName() + " " + member.getName());
+            }
+        }
+        return described;
+    }
+}
@@ -0,0 +1,252 @@
+package de.university.hof.genai.f2p;
+
+import static de.university.hof.genai.f2p.SyncedModels.family;
+import static de.university.hof.genai.f2p.SyncedModels.female;
+import static de.university.hof.genai.f2p.SyncedModels.male;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.xmi.XMIResource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import Families.FamiliesFactory;
+import Families.FamiliesPackage;
+import Families.Family;
+import Families.FamilyRegister;
+import Persons.Person;
+import Persons.PersonRegister;
+import Persons.PersonsFactory;
+import Persons.PersonsPackage;
+import de.university.hof.genai.f2p.StreamingFamiliesToPersons.FamiliesReader;
+import de.university.hof.genai.f2p.StreamingFamiliesToPersons.FamiliesWriter;
+import de.university.hof.genai.f2p.StreamingFamiliesToPersons.PersonsReader;
+import de.university.hof.genai.f2p.StreamingFamiliesToPersons.PersonsWriter;
+
+// Worker JVMs against a single-process ModelTransformer on the same generated input, and the
+// partitioning and merging steps the workers are made of
+class ShardedTransformationTest {
+
+	@TempDir
+	Path directory;
+
+	// The test runner's java.class.path need not contain the model and EMF, so the workers get
+	// the locations these classes were loaded from
+	private static String workerClassPath() throws URISyntaxException {
+		Set<String> entries = new LinkedHashSet<>();
+		for (Class<?> type : List.of(ShardedTransformation.class, FamiliesPackage.class, PersonsPackage.class, EObject.class, Notifier.class, XMIResource.class)) {
+			entries.add(Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString());
+		}
+		return String.join(File.pathSeparator, entries);
+	}
+
+    private ShardedTransformation sharded(int shards) throws URISyntaxException {
+        ShardedTransformation transformation = new ShardedTransformation(shards, directory.resolve("work"));
+        transformation.setClassPath(workerClassPath());
+        transformation.setJvmOptions(List.of("-Xmx256m"));
+        return transformation;
+    }
+
+    // Writes the families in about equal parts, one file each
+    private List<String> writeFamilies(String name, List<Family> families, int files) throws IOException, XMLStreamException {
+        List<String> paths = new ArrayList<>();
+        for (int file = 0; file < files; file++) {
+            Path path = directory.resolve(name + "-" + file + ".xmi");
+            try (OutputStream out = Files.newOutputStream(path)) {
+                FamiliesWriter writer = new FamiliesWriter(out);
+                for (Family family : families.subList(file * families.size() / files, (file + 1) * families.size() / files)) {
+                    writer.write(family);
+                }
+                writer.close();
+            }
+            paths.add(path.toString());
+        }
+        return paths;
+    }
+
+    private List<String> writePersons(String name, List<Person> persons, int files) throws IOException, XMLStreamException {
+        List<String> paths = new ArrayList<>();
+        for (int file = 0; file < files; file++) {
+            Path path = directory.resolve(name + "-" + file + ".xmi");
+            try (OutputStream out = Files.newOutputStream(path)) {
+                PersonsWriter writer = new PersonsWriter(out);
+                for (Person person : persons.subList(file * persons.size() / files, (file + 1) * persons.size() / files)) {
+                    writer.write(person);
+                }
+                writer.close();
+            }
+            paths.add(path.toString());
+        }
+        return paths;
+    }
+
+    private static List<Person> readPersons(String path) throws IOException, XMLStreamException {
+        List<Person> persons = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(Path.of(path))) {
+            PersonsReader reader = new PersonsReader(in);
+            for (Person person = reader.next(); person != null; person = reader.next()) {
+                persons.add(person);
+            }
+            reader.close();
+        }
+        return persons;
+    }
+
+    private static FamilyRegister readFamilies(String path) throws IOException, XMLStreamException {
+        FamilyRegister familyRegister = FamiliesFactory.eINSTANCE.createFamilyRegister();
+        try (InputStream in = Files.newInputStream(Path.of(path))) {
+            FamiliesReader reader = new FamiliesReader(in);
+            for (Family family = reader.next(); family != null; family = reader.next()) {
+                familyRegister.getFamilies().add(family);
+            }
+            reader.close();
+        }
+        return familyRegister;
+    }
+
+    private static FamilyRegister transform(List<Person> persons, boolean addToExistingFamilies, boolean preferParentRole) {
+        PersonRegister personRegister = PersonsFactory.eINSTANCE.createPersonRegister();
+        personRegister.getPersons().addAll(persons);
+        FamilyRegister familyRegister = FamiliesFactory.eINSTANCE.createFamilyRegister();
+        new ModelTransformer(null, null).transformPersonsToFamilies(personRegister, familyRegister, addToExistingFamilies, preferParentRole);
+        return familyRegister;
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "2, 5", "3, 4", "3, 2" })
+    void familiesToPersonsMatchesOneProcess(int shards, int files) throws Exception {
+        FamilyRegister familyRegister = RandomModels.familyRegister(400, 17);
+        List<String> inputs = writeFamilies("families", familyRegister.getFamilies(), files);
+        String output = directory.resolve("Persons.xmi").toString();
+        sharded(shards).transformFamiliesToPersons(inputs, output);
+
+        PersonRegister expected = PersonsFactory.eINSTANCE.createPersonRegister();
+        new ModelTransformer(null, null).transformFamiliesToPersons(familyRegister, expected);
+        assertEquals(RandomModels.describe(expected.getPersons()), RandomModels.describe(readPersons(output)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "2, false", "3, true" })
+    void personsToNewFamiliesMatchOneProcess(int shards, boolean preferParentRole) throws Exception {
+        List<Person> persons = RandomModels.personRegister(300, 23).getPersons();
+        List<String> inputs = writePersons("persons", persons, 4);
+        String output = directory.resolve("Families.xmi").toString();
+        sharded(shards).transformPersonsToFamilies(inputs, output, false, preferParentRole);
+
+        FamilyRegister expected = FamiliesFactory.eINSTANCE.createFamilyRegister();
+        for (String input : inputs) {
+            expected.getFamilies().addAll(transform(readPersons(input), false, preferParentRole).getFamilies());
+        }
+        assertEquals(RandomModels.describe(transform(new ArrayList<>(persons), false, preferParentRole)), RandomModels.describe(expected));
+        assertEquals(RandomModels.describe(expected), RandomModels.describe(readFamilies(output)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "2, false", "3, true" })
+    void personsAddedToExistingFamiliesMatchOneProcessPerShard(int shards, boolean preferParentRole) throws Exception {
+        List<Person> persons = RandomModels.personRegister(300, 29).getPersons();
+        List<String> inputs = writePersons("persons", persons, 4);
+        String output = directory.resolve("Families.xmi").toString();
+        sharded(shards).transformPersonsToFamilies(inputs, output, true, preferParentRole);
+
+        // The families come grouped by shard, each group as one process makes it from the
+        // persons of that shard in input order
+        List<Person> all = new ArrayList<>();
+        for (String input : inputs) {
+            all.addAll(readPersons(input));
+        }
+        PersonNames.Parser names = new PersonNames.Parser(false);
+        List<String> expected = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            List<Person> shardPersons = new ArrayList<>();
+            for (Person person : all) {
+                if (names.parse(person.getName()) && ShardedTransformation.shardOf(names.getFamilyName(), shards) == shard) {
+                    shardPersons.add(person);
+                }
+            }
+            expected.addAll(RandomModels.describe(transform(shardPersons, true, preferParentRole)));
+        }
+        List<String> actual = RandomModels.describe(readFamilies(output));
+        assertEquals(expected, actual);
+
+        // Up to that grouping, it is the single-process result
+        List<String> single = RandomModels.describe(transform(all, true, preferParentRole));
+        single.sort(null);
+        actual.sort(null);
+        assertEquals(single, actual);
+    }
+
+    @Test
+    void partitionsByTheHashOfTheFamilyName() throws Exception {
+        // String.hashCode is specified, so these hold on every JVM; Simpson's hash is negative
+        assertEquals(1, ShardedTransformation.shardOf("Simpson", 3));
+        assertEquals(2, ShardedTransformation.shardOf("Flanders", 3));
+        assertEquals(0, ShardedTransformation.shardOf("", 3));
+        assertEquals(ShardedTransformation.shardOf("null", 7), ShardedTransformation.shardOf(null, 7));
+
+        List<Person> persons = List.of(male("Simpson, Homer"), female("Flanders, Maude"), male("Malformed"), male("Flanders, , "), female("Simpson, Marge"),
+                male(", Nobody"), female("Flanders, Rod, "));
+        List<String> inputs = writePersons("persons", persons, 2);
+        String prefix = directory.resolve("partition-").toString();
+        ShardedTransformation.partitionPersons(inputs, prefix, 3);
+
+        assertEquals(List.of("Male , Nobody"), RandomModels.describe(readPersons(prefix + "0.xmi")));
+        assertEquals(List.of("Male Simpson, Homer", "Female Simpson, Marge"), RandomModels.describe(readPersons(prefix + "1.xmi")));
+        assertEquals(List.of("Female Flanders, Maude", "Female Flanders, Rod, "), RandomModels.describe(readPersons(prefix + "2.xmi")));
+    }
+
+    @Test
+    void mergesConcatenateInOrder() throws Exception {
+        List<Person> persons = List.of(male("Simpson, Homer"), female("Simpson, Marge"), male("Flanders, Ned"));
+        List<String> personShards = new ArrayList<>(writePersons("persons", persons, 2));
+        personShards.add(1, writePersons("empty", List.of(), 1).get(0));
+        String mergedPersons = directory.resolve("Persons.xmi").toString();
+        ShardedTransformation.mergePersons(personShards, mergedPersons);
+        assertEquals(RandomModels.describe(persons), RandomModels.describe(readPersons(mergedPersons)));
+
+        List<Family> families = List.of(family("Simpson", "Homer", "Marge", List.of("Bart"), List.of("Lisa")),
+                family("Flanders", "Ned", null, List.of("Rod", "Todd"), List.of()), family("Empty", null, null, List.of(), List.of()));
+        FamilyRegister expected = FamiliesFactory.eINSTANCE.createFamilyRegister();
+        expected.getFamilies().addAll(families);
+        List<String> familyShards = writeFamilies("families", families, 3);
+        String mergedFamilies = directory.resolve("Families.xmi").toString();
+        ShardedTransformation.mergeFamilies(familyShards, mergedFamilies);
+        FamilyRegister merged = readFamilies(mergedFamilies);
+        assertEquals(RandomModels.describe(expected), RandomModels.describe(merged));
+        assertEquals(List.of("Simpson", "Flanders", "Empty"), merged.getFamilies().stream().map(Family::getName).toList());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "FAMILIES", "families_to_persons", "PARTITION_PERSONS x prefix input", "PARTITION_PERSONS 0 prefix input", "PERSONS_TO_FAMILIES true false" })
+    void workersPrintTheUsageForBadArguments(String arguments) throws Exception {
+        List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(), "-cp", workerClassPath(),
+                ShardedTransformation.class.getName()));
+        if (!arguments.isEmpty()) {
+            command.addAll(List.of(arguments.split(" ")));
+        }
+        Process worker = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(worker.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(2, worker.waitFor(), output);
+        assertTrue(output.startsWith("Usage: ShardedTransformation"), output);
+    }
+}
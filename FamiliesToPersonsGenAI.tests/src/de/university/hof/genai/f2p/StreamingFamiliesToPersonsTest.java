@@ -0,0 +1,133 @@
+package de.university.hof.genai.f2p;
+
+import static de.university.hof.genai.f2p.SyncedModels.family;
+import static de.university.hof.genai.f2p.SyncedModels.female;
+import static de.university.hof.genai.f2p.SyncedModels.male;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import Families.Family;
+import Families.FamilyRegister;
+import Persons.Person;
+import Persons.PersonRegister;
+import Persons.PersonsFactory;
+import de.university.hof.genai.f2p.StreamingFamiliesToPersons.FamiliesReader;
+import de.university.hof.genai.f2p.StreamingFamiliesToPersons.FamiliesWriter;
+import de.university.hof.genai.f2p.StreamingFamiliesToPersons.PersonsReader;
+import de.university.hof.genai.f2p.StreamingFamiliesToPersons.PersonsWriter;
+
+// The StAX reader and writer against files saved and loaded by EMF, and the streamed
+// transformation against ModelTransformer on the same input
+class StreamingFamiliesToPersonsTest {
+
+	@TempDir
+	Path directory;
+
+	private final ModelPersistence persistence = new ModelPersistence(ModelPersistence.Format.XMI);
+
+    private static FamilyRegister families() {
+        FamilyRegister familyRegister = RandomModels.familyRegister(300, 11);
+        // Names that need escaping or are not ASCII, and a family without members
+        familyRegister.getFamilies().add(family("O'Brien & <Sons>", "Seán", "Zoë \"Z\"", List.of("Tomás"), List.of()));
+        familyRegister.getFamilies().add(family("Empty", null, null, List.of(), List.of()));
+        return familyRegister;
+    }
+
+    private Path save(EObject root, String fileName) throws IOException {
+        Path path = directory.resolve(fileName);
+        Resource resource = persistence.createResourceSet().createResource(URI.createFileURI(path.toString()));
+        resource.getContents().add(root);
+        persistence.save(resource, path.toString());
+        return path;
+    }
+
+    private EObject load(Path path) {
+        return persistence.load(persistence.createResourceSet(), path.toString()).getContents().get(0);
+    }
+
+    @Test
+    void streamedPersonsMatchModelTransformer() throws IOException {
+        FamilyRegister familyRegister = families();
+        Path familiesPath = save(familyRegister, "Families.xmi");
+        Path personsPath = directory.resolve("Persons.xmi");
+        new StreamingFamiliesToPersons().transform(familiesPath.toString(), personsPath.toString());
+
+        PersonRegister expected = PersonsFactory.eINSTANCE.createPersonRegister();
+        new ModelTransformer(null, null).transformFamiliesToPersons((FamilyRegister) load(familiesPath), expected);
+        PersonRegister streamed = (PersonRegister) load(personsPath);
+        assertEquals(RandomModels.describe(expected.getPersons()), RandomModels.describe(streamed.getPersons()));
+        assertTrue(RandomModels.describe(streamed.getPersons()).contains("Male O'Brien & <Sons>, Seán"));
+    }
+
+    @Test
+    void familiesRoundTripThroughTheReaderAndWriter() throws IOException, XMLStreamException {
+        FamilyRegister familyRegister = families();
+        Path saved = save(EcoreUtil.copy(familyRegister), "Families.xmi");
+
+        // EMF file -> reader
+        List<Family> read = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(saved)) {
+            FamiliesReader reader = new FamiliesReader(in);
+            for (Family family = reader.next(); family != null; family = reader.next()) {
+                read.add(family);
+            }
+            reader.close();
+        }
+        assertTrue(EcoreUtil.equals(familyRegister.getFamilies(), read));
+
+        // Writer -> EMF load
+        Path written = directory.resolve("Written.xmi");
+        try (OutputStream out = Files.newOutputStream(written)) {
+            FamiliesWriter writer = new FamiliesWriter(out);
+            for (Family family : read) {
+                writer.write(family);
+            }
+            writer.close();
+        }
+        assertTrue(EcoreUtil.equals(familyRegister, load(written)));
+    }
+
+    @Test
+    void personsRoundTripThroughTheReaderAndWriter() throws IOException, XMLStreamException {
+        PersonRegister personRegister = RandomModels.personRegister(300, 12);
+        personRegister.getPersons().addAll(List.of(male("O'Brien & <Sons>, Seán"), female("Nobody")));
+        Path saved = save(EcoreUtil.copy(personRegister), "Persons.xmi");
+
+        List<Person> read = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(saved)) {
+            PersonsReader reader = new PersonsReader(in);
+            for (Person person = reader.next(); person != null; person = reader.next()) {
+                read.add(person);
+            }
+            reader.close();
+        }
+        assertEquals(RandomModels.describe(personRegister.getPersons()), RandomModels.describe(read));
+
+        Path written = directory.resolve("Written.xmi");
+        try (OutputStream out = Files.newOutputStream(written)) {
+            PersonsWriter writer = new PersonsWriter(out);
+            for (Person person : read) {
+                writer.write(person);
+            }
+            writer.close();
+        }
+        assertTrue(EcoreUtil.equals(personRegister, load(written)));
+    }
+}
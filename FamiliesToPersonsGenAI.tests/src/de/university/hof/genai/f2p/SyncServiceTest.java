@@ -0,0 +1,152 @@
+package de.university.hof.genai.f2p;
+
+import static de.university.hof.genai.f2p.SyncedModels.family;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.PersonRegister;
+
+// Commands applied through the service's writer thread, failing commands and shutdown
+class SyncServiceTest {
+
+	@TempDir
+	Path directory;
+
+	private SyncedModels models;
+	private SyncService service;
+
+    @BeforeEach
+    void start() throws IOException {
+        models = new SyncedModels(family("Simpson", "Homer", "Marge", List.of("Bart"), List.of("Lisa")));
+        service = new SyncService(models.transformer, models.familiesResource, models.personsResource, directory.resolve("sync.socket"));
+        service.start();
+    }
+
+    @AfterEach
+    void close() {
+        service.close();
+    }
+
+    @Test
+    void failingCommandsDoNotStopTheWriter() throws Exception {
+        ExecutionException unknown = assertThrows(ExecutionException.class, () -> service.execute(new String[] { "JUMP" }));
+        assertInstanceOf(IllegalArgumentException.class, unknown.getCause());
+        // No snapshot directory is configured
+        assertThrows(ExecutionException.class, () -> service.execute(new String[] { "SNAPSHOT" }));
+        service.execute(new String[] { "ADD_PERSON", "MALE", "Simpson, Abe" });
+        models.assertInSync();
+        assertTrue(models.members().contains("Simpson sons Abe"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "XMI, xmi", "ZIPPED_XMI, xmi.zip", "BINARY, bin", "ZIPPED_BINARY, bin.zip" })
+    void snapshotsHoldTheModelsAsTheyWereWhenTaken(ModelPersistence.Format format, String extension) throws Exception {
+        Path snapshots = directory.resolve("snapshots");
+        service.setPersistence(new ModelPersistence(format));
+        service.setSnapshots(snapshots, 3600);
+        service.execute(new String[] { "ADD_FAMILY", "Flanders" });
+        service.execute(new String[] { "ADD_MEMBER", "Flanders", "FATHER", "Ned" });
+        service.execute(new String[] { "ADD_MEMBER", "Flanders", "SON", "Rod" });
+        service.execute(new String[] { "ADD_PERSON", "FEMALE", "Simpson, Maggie" });
+        service.execute(new String[] { "ADD_PERSON", "MALE", "Nobody" });
+        List<String> families = RandomModels.describe(models.familyRegister);
+        List<String> persons = RandomModels.describe(models.personRegister.getPersons());
+
+        service.execute(new String[] { "SNAPSHOT" });
+        // Edits after the snapshot was taken are not in it, though it may still be saving
+        service.execute(new String[] { "RENAME_FAMILY", "Simpson", "Bouvier" });
+        service.execute(new String[] { "REMOVE_PERSON", "Flanders, Rod" });
+        Path trace = snapshots.resolve("Families2Persons.trace");
+        for (long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30); !Files.exists(trace) && System.nanoTime() < deadline;) {
+            Thread.sleep(10);
+        }
+
+        ModelPersistence persistence = new ModelPersistence(format);
+        ResourceSet resourceSet = persistence.createResourceSet();
+        Resource familiesResource = persistence.load(resourceSet, snapshots.resolve("Families." + extension).toString());
+        Resource personsResource = persistence.load(resourceSet, snapshots.resolve("Persons." + extension).toString());
+        try (Stream<Path> files = Files.list(snapshots)) {
+            assertEquals(Set.of("Families." + extension, "Persons." + extension, "Families2Persons.trace"),
+                    files.map(file -> file.getFileName().toString()).collect(Collectors.toSet()));
+        }
+        FamilyRegister familyRegister = (FamilyRegister) familiesResource.getContents().get(0);
+        PersonRegister personRegister = (PersonRegister) personsResource.getContents().get(0);
+        assertEquals(families, RandomModels.describe(familyRegister));
+        assertEquals(persons, RandomModels.describe(personRegister.getPersons()));
+
+        IncrementalModelTransformer restored = new IncrementalModelTransformer(familiesResource, personsResource);
+        assertTrue(restored.loadTrace(trace.toString()));
+        for (Family family : familyRegister.getFamilies()) {
+            for (FamilyMember member : IncrementalModelTransformer.getMembers(family)) {
+                assertEquals(PersonNames.compose(family.getName(), member.getName()), restored.getPerson(member).getName());
+            }
+        }
+    }
+
+    @Test
+    void commandsAfterCloseFail() {
+        service.close();
+        ExecutionException late = assertThrows(ExecutionException.class, () -> service.execute(new String[] { "ADD_FAMILY", "Flanders" }));
+        assertInstanceOf(IllegalStateException.class, late.getCause());
+    }
+
+    @Test
+    void everyCommandRacingCloseCompletes() throws Exception {
+        // Each command is either applied or rejected, none is left waiting for a stopped writer
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> applied = new ArrayList<>();
+            for (int client = 0; client < 8; client++) {
+                int id = client;
+                applied.add(clients.submit(() -> {
+                    for (int i = 0;; i++) {
+                        try {
+                            service.execute(new String[] { "ADD_PERSON", "FEMALE", "Client" + id + ", P" + i });
+                        } catch (ExecutionException e) {
+                            assertInstanceOf(IllegalStateException.class, e.getCause());
+                            return i;
+                        }
+                    }
+                }));
+            }
+            Thread.sleep(50);
+            service.close();
+            int persons = 4;
+            for (Future<Integer> result : applied) {
+                persons += result.get(1, TimeUnit.MINUTES);
+            }
+            models.assertInSync();
+            assertEquals(persons, models.personRegister.getPersons().size());
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package de.university.hof.genai.f2p;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
+
+import Families.FamiliesFactory;
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Male;
+import Persons.Person;
+import Persons.PersonRegister;
+import Persons.PersonsFactory;
+
+// A Families and a Persons model in their own resources, kept in sync by a listening
+// IncrementalModelTransformer, and the assertions the tests make about them
+final class SyncedModels {
+
+	final Resource familiesResource = new XMIResourceImpl(URI.createFileURI("Families.xmi"));
+	final Resource personsResource = new XMIResourceImpl(URI.createFileURI("Persons.xmi"));
+	final FamilyRegister familyRegister = FamiliesFactory.eINSTANCE.createFamilyRegister();
+	final PersonRegister personRegister = PersonsFactory.eINSTANCE.createPersonRegister();
+	final IncrementalModelTransformer transformer = new IncrementalModelTransformer(familiesResource, personsResource);
+
+	SyncedModels(Family... families) {
+		this(IncrementalModelTransformer.ListenerScope.ALL, families);
+	}
+
+	SyncedModels(IncrementalModelTransformer.ListenerScope listenerScope, Family... families) {
+		transformer.setListenerScope(listenerScope);
+		familyRegister.getFamilies().addAll(List.of(families));
+		familiesResource.getContents().add(familyRegister);
+		personsResource.getContents().add(personRegister);
+		transformer.transformFamiliesToPersons(familyRegister, personRegister);
+		transformer.transformPersonsToFamilies(personRegister, familyRegister, true, true);
+		transformer.addFamilyRegisterListener(familyRegister, personRegister);
+		transformer.addPersonRegisterListener(personRegister, familyRegister);
+	}
+
+    SyncedModels batching(boolean batching) {
+        transformer.setBatching(batching);
+        return this;
+    }
+
+    static Family family(String name, String father, String mother, List<String> sons, List<String> daughters) {
+        Family family = FamiliesFactory.eINSTANCE.createFamily();
+        family.setName(name);
+        if (father != null) {
+            family.setFather(member(father));
+        }
+        if (mother != null) {
+            family.setMother(member(mother));
+        }
+        for (String son : sons) {
+            family.getSons().add(member(son));
+        }
+        for (String daughter : daughters) {
+            family.getDaughters().add(member(daughter));
+        }
+        return family;
+    }
+
+    static FamilyMember member(String name) {
+        FamilyMember member = FamiliesFactory.eINSTANCE.createFamilyMember();
+        member.setName(name);
+        return member;
+    }
+
+    static Person male(String name) {
+        Person person = PersonsFactory.eINSTANCE.createMale();
+        person.setName(name);
+        return person;
+    }
+
+    static Person female(String name) {
+        Person person = PersonsFactory.eINSTANCE.createFemale();
+        person.setName(name);
+        return person;
+    }
+
+    // "Male Simpson, Homer", sorted, so registers can be compared regardless of their order
+    List<String> persons() {
+        List<String> persons = new ArrayList<>();
+        for (Person person : personRegister.getPersons()) {
+            persons.add(describe(person));
+        }
+        Collections.sort(persons);
+        return persons;
+    }
+
+    // "Simpson father Homer", sorted
+    List<String> members() {
+        List<String> members = new ArrayList<>();
+        for (Family family : familyRegister.getFamilies()) {
+            for (FamilyMember member : IncrementalModelTransformer.getMembers(family)) {
+                members.add(family.getName() + " " + member.eContainmentFeature().getName() + " " + member.getName());
+            }
+        }
+        Collections.sort(members);
+        return members;
+    }
+
+    static String describe(Person person) {
+        return (person instanceof Male ? "Male " : "Female ") + person.getName();
+    }
+
+    // Every member has a person of its name and gender and every person a member, through the trace
+    void assertInSync() {
+        transformer.flush();
+        int members = 0;
+        for (Family family : familyRegister.getFamilies()) {
+            for (FamilyMember member : IncrementalModelTransformer.getMembers(family)) {
+                members++;
+                Person person = transformer.getPerson(member);
+                assertNotNull(person, "No person for " + family.getName() + ", " + member.getName());
+                assertEquals(PersonNames.compose(family.getName(), member.getName()), person.getName());
+                boolean male = member == family.getFather() || family.getSons().contains(member);
+                assertEquals(male, person instanceof Male, person.getName());
+                assertEquals(personRegister, person.eContainer(), person.getName());
+                assertEquals(member, transformer.getFamilyMember(person));
+            }
+        }
+        assertEquals(members, personRegister.getPersons().size(), "Persons without a member: " + persons());
+    }
+}
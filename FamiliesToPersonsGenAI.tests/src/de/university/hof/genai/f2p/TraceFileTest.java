@@ -0,0 +1,132 @@
+package de.university.hof.genai.f2p;
+
+import static de.university.hof.genai.f2p.SyncedModels.family;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import Families.Family;
+import Families.FamilyMember;
+import Persons.Person;
+
+// Saving and loading the trace side file, including files that were cut off or damaged
+class TraceFileTest {
+
+	@TempDir
+	Path directory;
+
+	private SyncedModels models;
+	private Path traceFile;
+	private byte[] trace;
+
+    @BeforeEach
+    void saveTrace() throws IOException {
+        models = new SyncedModels(
+                family("Simpson", "Homer", "Marge", List.of("Bart"), List.of("Lisa", "Maggie")),
+                family("Flanders", "Ned", "Maude", List.of("Rod", "Todd"), List.of()),
+                family("Griffin", "Peter", "Lois", List.of("Chris", "Stewie"), List.of("Meg")));
+        traceFile = directory.resolve("Families2Persons.trace");
+        models.transformer.saveTrace(traceFile.toString());
+        trace = Files.readAllBytes(traceFile);
+    }
+
+    private IncrementalModelTransformer restarted() {
+        return new IncrementalModelTransformer(models.familiesResource, models.personsResource);
+    }
+
+    @Test
+    void loadRestoresEveryLink() {
+        IncrementalModelTransformer transformer = restarted();
+        assertTrue(transformer.loadTrace(traceFile.toString()));
+        for (Family family : models.familyRegister.getFamilies()) {
+            for (FamilyMember member : IncrementalModelTransformer.getMembers(family)) {
+                assertEquals(models.transformer.getPerson(member), transformer.getPerson(member));
+            }
+        }
+    }
+
+    @Test
+    void memberAddedAfterSavingIsRejected() {
+        // The Families file got a son while the trace was not running; the sizes of both registers
+        // and every saved link still fit
+        Family simpson = models.familyRegister.getFamilies().get(0);
+        simpson.eSetDeliver(false);
+        simpson.getSons().add(SyncedModels.member("Abe"));
+        simpson.eSetDeliver(true);
+        IncrementalModelTransformer transformer = restarted();
+        assertFalse(transformer.loadTrace(traceFile.toString()));
+        assertNull(transformer.getPerson(simpson.getFather()));
+    }
+
+    @Test
+    void personAddedInPlaceOfAMalformedOneIsRejected() {
+        Person nobody = SyncedModels.male("Nobody");
+        models.personRegister.getPersons().add(nobody);
+        models.transformer.saveTrace(traceFile.toString());
+        assertTrue(restarted().loadTrace(traceFile.toString()));
+
+        // Now well-formed, the person would need a member and a link
+        nobody.eSetDeliver(false);
+        nobody.setName("Simpson, Abe");
+        nobody.eSetDeliver(true);
+        assertFalse(restarted().loadTrace(traceFile.toString()));
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        for (int length = 0; length < trace.length; length++) {
+            Files.write(traceFile, Arrays.copyOf(trace, length));
+            assertFalse(restarted().loadTrace(traceFile.toString()), "Loaded the first " + length + " bytes");
+        }
+    }
+
+    @Test
+    void damagedFileIsRejectedOrStillConsistent() throws IOException {
+        // Every outcome but an exception is fine, as long as a loaded trace fits the models
+        Random random = new Random(1);
+        for (int i = 0; i < 2_000; i++) {
+            byte[] damaged = trace.clone();
+            for (int flips = 1 + random.nextInt(3); flips > 0; flips--) {
+                damaged[8 + random.nextInt(damaged.length - 8)] = (byte) random.nextInt(256);
+            }
+            Files.write(traceFile, damaged);
+            IncrementalModelTransformer transformer = restarted();
+            if (transformer.loadTrace(traceFile.toString())) {
+                for (Family family : models.familyRegister.getFamilies()) {
+                    for (FamilyMember member : IncrementalModelTransformer.getMembers(family)) {
+                        assertEquals(PersonNames.compose(family.getName(), member.getName()), transformer.getPerson(member).getName());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void hugeLengthsAreRejectedWithoutAllocating() throws IOException {
+        // The header and register sizes (one byte each) of the saved file, then one link whose
+        // member fragment claims 2^31 - 1 new bytes
+        byte[] damaged = Arrays.copyOf(trace, 18);
+        damaged[10] = 1;
+        damaged[11] = 0;
+        damaged[12] = (byte) 0xFF;
+        damaged[13] = (byte) 0xFF;
+        damaged[14] = (byte) 0xFF;
+        damaged[15] = (byte) 0xFF;
+        damaged[16] = 0x07;
+        damaged[17] = 0;
+        Files.write(traceFile, damaged);
+        assertFalse(restarted().loadTrace(traceFile.toString()));
+    }
+}
@@ -0,0 +1,232 @@
+package de.university.hof.genai.f2p;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import Families.FamiliesFactory;
+import Families.FamilyMember;
+import Persons.Person;
+import Persons.PersonsFactory;
+
+// Trace against a pair of IdentityHashMaps, and the corners of its open-addressing tables
+class TraceTest {
+
+	// Slots of the tables of a trace holding at most 16 links
+	private static final int SLOTS = 32;
+
+	// Both directions and the position hints, as the trace should have them
+	private static final class Reference {
+		final Map<FamilyMember, Person> persons = new IdentityHashMap<>();
+		final Map<Person, FamilyMember> members = new IdentityHashMap<>();
+		final Map<Person, Integer> positions = new IdentityHashMap<>();
+
+		void link(FamilyMember member, Person person, int position) {
+			unlinkMember(member);
+			unlinkPerson(person);
+			persons.put(member, person);
+			members.put(person, member);
+			positions.put(person, position);
+		}
+
+		Person unlinkMember(FamilyMember member) {
+			Person person = persons.remove(member);
+			if (person != null) {
+				members.remove(person);
+				positions.remove(person);
+			}
+			return person;
+		}
+
+		FamilyMember unlinkPerson(Person person) {
+			FamilyMember member = members.remove(person);
+			if (member != null) {
+				persons.remove(member);
+				positions.remove(person);
+			}
+			return member;
+		}
+	}
+
+    private static List<FamilyMember> members(int count) {
+        List<FamilyMember> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            members.add(FamiliesFactory.eINSTANCE.createFamilyMember());
+        }
+        return members;
+    }
+
+    private static List<Person> persons(int count) {
+        List<Person> persons = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            persons.add(PersonsFactory.eINSTANCE.createMale());
+        }
+        return persons;
+    }
+
+    private static void assertMatches(Reference reference, Trace trace, List<FamilyMember> members, List<Person> persons) {
+        assertEquals(reference.persons.size(), trace.size());
+        for (FamilyMember member : members) {
+            assertSame(reference.persons.get(member), trace.getPerson(member));
+        }
+        for (Person person : persons) {
+            assertSame(reference.members.get(person), trace.getFamilyMember(person));
+            assertEquals(reference.positions.getOrDefault(person, -1), trace.getPosition(person));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = { 1, 2, 3, 4, 5 })
+    void randomOperationsMatchIdentityHashMaps(long seed) {
+        Random random = new Random(seed);
+        // Few elements for many operations, so links are replaced and removed often
+        List<FamilyMember> members = members(300);
+        List<Person> persons = persons(300);
+        Reference reference = new Reference();
+        Trace trace = new Trace();
+        for (int operation = 0; operation < 20_000; operation++) {
+            FamilyMember member = members.get(random.nextInt(members.size()));
+            Person person = persons.get(random.nextInt(persons.size()));
+            int choice = random.nextInt(100);
+            if (choice < 50) {
+                int position = random.nextInt(10) - 1;
+                reference.link(member, person, position);
+                trace.link(member, person, position);
+            } else if (choice < 70) {
+                assertSame(reference.unlinkMember(member), trace.unlinkFamilyMember(member));
+            } else if (choice < 90) {
+                assertSame(reference.unlinkPerson(person), trace.unlinkPerson(person));
+            } else if (choice < 99) {
+                int position = random.nextInt(1000);
+                if (reference.members.containsKey(person)) {
+                    reference.positions.put(person, position);
+                }
+                trace.setPosition(person, position);
+            } else if (random.nextInt(20) == 0) {
+                reference.persons.clear();
+                reference.members.clear();
+                reference.positions.clear();
+                trace.clear();
+            }
+            assertEquals(reference.persons.size(), trace.size());
+            assertSame(reference.persons.get(member), trace.getPerson(member));
+            assertSame(reference.members.get(person), trace.getFamilyMember(person));
+            if (operation % 1000 == 0) {
+                assertMatches(reference, trace, members, persons);
+            }
+        }
+        assertMatches(reference, trace, members, persons);
+        // Unlinking everything leaves an empty trace that still works
+        for (FamilyMember member : members) {
+            assertSame(reference.unlinkMember(member), trace.unlinkFamilyMember(member));
+        }
+        assertMatches(reference, trace, members, persons);
+        trace.link(members.get(0), persons.get(0));
+        assertSame(persons.get(0), trace.getPerson(members.get(0)));
+    }
+
+    @Test
+    void nullIsNeverLinked() {
+        Trace trace = new Trace();
+        assertNull(trace.getPerson(null));
+        assertNull(trace.getFamilyMember(null));
+        assertNull(trace.unlinkFamilyMember(null));
+        assertNull(trace.unlinkPerson(null));
+        assertEquals(-1, trace.getPosition(null));
+    }
+
+    // Same as Trace.hash, to find keys whose probe sequences wrap around the end of the tables
+    private static int homeSlot(Object key) {
+        int h = System.identityHashCode(key) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (SLOTS - 1);
+    }
+
+    // Members and persons whose home slots are the given ones, in order
+    private static List<FamilyMember> membersAt(int... slots) {
+        List<FamilyMember> members = new ArrayList<>();
+        for (int slot : slots) {
+            FamilyMember member;
+            do {
+                member = FamiliesFactory.eINSTANCE.createFamilyMember();
+            } while (homeSlot(member) != slot);
+            members.add(member);
+        }
+        return members;
+    }
+
+    private static List<Person> personsAt(int... slots) {
+        List<Person> persons = new ArrayList<>();
+        for (int slot : slots) {
+            Person person;
+            do {
+                person = PersonsFactory.eINSTANCE.createFemale();
+            } while (homeSlot(person) != slot);
+            persons.add(person);
+        }
+        return persons;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 1, 2, 3, 4, 5 })
+    void deletionAcrossTheWrapAround(int removed) {
+        // Three keys at home in the last slot fill it and the first two; the keys at home in
+        // slots 0 and 1 are pushed behind them, so every deletion shifts across the end
+        int[] slots = { SLOTS - 1, SLOTS - 1, SLOTS - 1, 0, 1, SLOTS - 2 };
+        List<FamilyMember> members = membersAt(slots);
+        List<Person> persons = personsAt(slots);
+        Reference reference = new Reference();
+        Trace trace = new Trace();
+        for (int i = 0; i < slots.length; i++) {
+            reference.link(members.get(i), persons.get(i), i);
+            trace.link(members.get(i), persons.get(i), i);
+        }
+        assertMatches(reference, trace, members, persons);
+
+        assertSame(reference.unlinkMember(members.get(removed)), trace.unlinkFamilyMember(members.get(removed)));
+        assertMatches(reference, trace, members, persons);
+        int next = (removed + 2) % slots.length;
+        assertSame(reference.unlinkPerson(persons.get(next)), trace.unlinkPerson(persons.get(next)));
+        assertMatches(reference, trace, members, persons);
+
+        // Linking again fills the freed slots
+        reference.link(members.get(removed), persons.get(next), 7);
+        trace.link(members.get(removed), persons.get(next), 7);
+        assertMatches(reference, trace, members, persons);
+    }
+
+    @Test
+    void linksAreLimitedToWhatTheTablesCanIndex() {
+        // Entries keep the link index plus one in their low 27 bits
+        assertEquals((1 << 27) - 2, Trace.MAX_LINKS);
+
+        Trace trace = new Trace(3);
+        List<FamilyMember> members = members(4);
+        List<Person> persons = persons(4);
+        for (int i = 0; i < 3; i++) {
+            trace.link(members.get(i), persons.get(i));
+        }
+        assertThrows(IllegalStateException.class, () -> trace.link(members.get(3), persons.get(3)));
+        assertEquals(3, trace.size());
+        assertNull(trace.getPerson(members.get(3)));
+        assertNull(trace.getFamilyMember(persons.get(3)));
+
+        // A full trace still replaces links, which frees the place of the old one
+        trace.link(members.get(0), persons.get(3));
+        assertSame(persons.get(3), trace.getPerson(members.get(0)));
+        assertNull(trace.getFamilyMember(persons.get(0)));
+        trace.unlinkPerson(persons.get(1));
+        trace.link(members.get(3), persons.get(1));
+        assertEquals(3, trace.size());
+    }
+}
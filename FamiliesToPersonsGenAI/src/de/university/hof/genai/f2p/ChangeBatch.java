@@ -0,0 +1,138 @@
+package de.university.hof.genai.f2p;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+
+import Families.FamiliesPackage;
+import Families.Family;
+import Families.FamilyMember;
+import Persons.Person;
+import Persons.PersonsPackage;
+
+// Pending changes of the Families and Persons models, one entry per element. Notifications are
+// reduced to what happened to an element (added, removed or otherwise changed) and merged with
+// the entry recorded earlier, so bursts of edits to the same element are propagated once and
+// additions that are undone before a flush are not propagated at all. Propagation reads the
+// current state of an element, so only the kind of change has to be remembered.
+final class ChangeBatch {
+
+	enum Change {
+		ADDED, REMOVED, CHANGED
+	}
+
+	private final Map<EObject, Change> changes = new LinkedHashMap<>();
+	private long firstChangeTime;
+
+	boolean isEmpty() {
+		return changes.isEmpty();
+	}
+
+	int size() {
+		return changes.size();
+	}
+
+	// System.nanoTime() of the oldest pending change
+	long getFirstChangeTime() {
+		return firstChangeTime;
+	}
+
+	void record(Notification notification) {
+		Object feature = notification.getFeature();
+		if (feature == FamiliesPackage.Literals.FAMILY_REGISTER__FAMILIES
+				|| feature == PersonsPackage.Literals.PERSON_REGISTER__PERSONS) {
+			recordValues(notification, Change.ADDED, Change.REMOVED);
+		} else if (feature == FamiliesPackage.Literals.FAMILY__NAME) {
+			record((EObject) notification.getNotifier(), Change.CHANGED);
+		} else if (notification.getNotifier() instanceof Family) {
+			// Members entering or leaving a role are synchronized from their own state
+			recordValues(notification, Change.CHANGED, Change.CHANGED);
+		} else if (notification.getNotifier() instanceof FamilyMember) {
+			record((EObject) notification.getNotifier(), Change.CHANGED);
+		} else if (feature == PersonsPackage.Literals.PERSON__NAME) {
+			record((Person) notification.getNotifier(), Change.CHANGED);
+		}
+		// Birthdays have no counterpart in the Families model
+	}
+
+	private void recordValues(Notification notification, Change added, Change removed) {
+		switch (notification.getEventType()) {
+		case Notification.ADD:
+			record((EObject) notification.getNewValue(), added);
+			break;
+		case Notification.ADD_MANY:
+			for (Object value : (List<?>) notification.getNewValue()) {
+				record((EObject) value, added);
+			}
+			break;
+		case Notification.REMOVE:
+			record((EObject) notification.getOldValue(), removed);
+			break;
+		case Notification.REMOVE_MANY:
+			for (Object value : (List<?>) notification.getOldValue()) {
+				record((EObject) value, removed);
+			}
+			break;
+		case Notification.SET:
+		case Notification.UNSET:
+			if (notification.getOldValue() != null) {
+				record((EObject) notification.getOldValue(), removed);
+			}
+			if (notification.getNewValue() != null) {
+				record((EObject) notification.getNewValue(), added);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	void record(EObject element, Change change) {
+		if (changes.isEmpty()) {
+			firstChangeTime = System.nanoTime();
+		}
+		// Re-inserting moves the element behind everything touched before, so that when both
+		// sides of a correspondence were edited, the later edit is synchronized last and wins
+		Change merged = merge(changes.remove(element), change);
+		if (merged != null) {
+			changes.put(element, merged);
+		}
+	}
+
+	private static Change merge(Change previous, Change next) {
+		if (previous == null) {
+			return next;
+		}
+		switch (previous) {
+		case ADDED:
+			// Added and removed again: nothing to propagate
+			return next == Change.REMOVED ? null : Change.ADDED;
+		case REMOVED:
+			// Removed and added again: the counterpart still exists and only needs updating
+			return next == Change.ADDED ? Change.CHANGED : Change.REMOVED;
+		default:
+			return next == Change.REMOVED ? Change.REMOVED : Change.CHANGED;
+		}
+	}
+
+	boolean contains(EObject element) {
+		return changes.containsKey(element);
+	}
+
+	// Hands every pending change to the consumer in the order the elements were last touched. An
+	// entry is removed right before it is handed over, so contains() tells the consumer which
+	// elements are still waiting for their own propagation.
+	void drain(BiConsumer<EObject, Change> consumer) {
+		while (!changes.isEmpty()) {
+			Iterator<Map.Entry<EObject, Change>> iterator = changes.entrySet().iterator();
+			Map.Entry<EObject, Change> next = iterator.next();
+			iterator.remove();
+			consumer.accept(next.getKey(), next.getValue());
+		}
+	}
+}
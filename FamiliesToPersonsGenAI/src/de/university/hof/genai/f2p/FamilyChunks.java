@@ -0,0 +1,67 @@
+package de.university.hof.genai.f2p;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import Families.Family;
+
+// Splits a list of families into contiguous chunks, maps every chunk on a ForkJoinPool and returns
+// the results in chunk order, so merging them sequentially reproduces the order of the input.
+// The mapper must only read the families; the models are not modified concurrently.
+final class FamilyChunks {
+
+	// More chunks than threads, so that families of very different sizes still balance out
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private FamilyChunks() {
+	}
+
+	static <T> List<T> map(List<Family> families, int parallelism, Function<List<Family>, T> mapper) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+		}
+		List<Family> snapshot = Arrays.asList(families.toArray(new Family[0]));
+		int chunkCount = Math.max(1, Math.min(snapshot.size(), parallelism * CHUNKS_PER_THREAD));
+		if (parallelism == 1 || chunkCount == 1) {
+			List<T> results = new ArrayList<>(1);
+			results.add(mapper.apply(snapshot));
+			return results;
+		}
+
+		List<Callable<T>> tasks = new ArrayList<>(chunkCount);
+		for (int chunk = 0; chunk < chunkCount; chunk++) {
+			List<Family> chunkFamilies = snapshot.subList(
+					(int) ((long) snapshot.size() * chunk / chunkCount),
+					(int) ((long) snapshot.size() * (chunk + 1) / chunkCount));
+			tasks.add(() -> mapper.apply(chunkFamilies));
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<T> results = new ArrayList<>(chunkCount);
+			for (Future<T> future : pool.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while transforming families", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
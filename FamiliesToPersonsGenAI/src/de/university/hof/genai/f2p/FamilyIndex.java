@@ -0,0 +1,143 @@
+package de.university.hof.genai.f2p;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+
+import Families.FamiliesPackage;
+import Families.Family;
+import Families.FamilyRegister;
+
+// Name -> Family lookup for a FamilyRegister. get() returns the family that has carried a name
+// the longest; later families with the same name are kept aside and take over, in the order they
+// got the name, when it is renamed or removed. For a register that only grows at the end this is
+// the first family in register order, as with the linear scan the index replaces. After families
+// were removed and added again, or inserted in the middle, the scan could pick another one.
+public final class FamilyIndex extends AdapterImpl {
+
+	private final Map<String, Family> families = new HashMap<>();
+	private final Map<String, List<Family>> duplicates = new HashMap<>();
+	private FamilyRegister familyRegister;
+
+	public FamilyIndex(FamilyRegister familyRegister) {
+		this.familyRegister = familyRegister;
+		for (Family family : familyRegister.getFamilies()) {
+			add(family);
+		}
+	}
+
+	// Builds an index that keeps itself up to date by listening to the register and its families
+	public static FamilyIndex attach(FamilyRegister familyRegister) {
+		FamilyIndex index = new FamilyIndex(familyRegister);
+		familyRegister.eAdapters().add(index);
+		for (Family family : familyRegister.getFamilies()) {
+			family.eAdapters().add(index);
+		}
+		return index;
+	}
+
+	public void detach() {
+		familyRegister.eAdapters().remove(this);
+		for (Family family : familyRegister.getFamilies()) {
+			family.eAdapters().remove(this);
+		}
+	}
+
+	public FamilyRegister getFamilyRegister() {
+		return familyRegister;
+	}
+
+	public Family get(String familyName) {
+		return families.get(familyName);
+	}
+
+	public void add(Family family) {
+		String familyName = family.getName();
+		if (familyName == null) {
+			return;
+		}
+		Family existingFamily = families.putIfAbsent(familyName, family);
+		if (existingFamily != null && existingFamily != family) {
+			duplicates.computeIfAbsent(familyName, name -> new ArrayList<>(2)).add(family);
+		}
+	}
+
+	public void remove(Family family) {
+		remove(family, family.getName());
+	}
+
+	private void remove(Family family, String familyName) {
+		if (familyName == null) {
+			return;
+		}
+		if (families.get(familyName) == family) {
+			List<Family> sameName = duplicates.get(familyName);
+			if (sameName == null) {
+				families.remove(familyName);
+			} else {
+				families.put(familyName, sameName.remove(0));
+				if (sameName.isEmpty()) {
+					duplicates.remove(familyName);
+				}
+			}
+		} else {
+			List<Family> sameName = duplicates.get(familyName);
+			if (sameName != null && sameName.remove(family) && sameName.isEmpty()) {
+				duplicates.remove(familyName);
+			}
+		}
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		Object feature = notification.getFeature();
+		if (feature == FamiliesPackage.Literals.FAMILY_REGISTER__FAMILIES) {
+			switch (notification.getEventType()) {
+			case Notification.ADD:
+				familyAdded((Family) notification.getNewValue());
+				break;
+			case Notification.ADD_MANY:
+				for (Object family : (List<?>) notification.getNewValue()) {
+					familyAdded((Family) family);
+				}
+				break;
+			case Notification.REMOVE:
+				familyRemoved((Family) notification.getOldValue());
+				break;
+			case Notification.REMOVE_MANY:
+				for (Object family : (List<?>) notification.getOldValue()) {
+					familyRemoved((Family) family);
+				}
+				break;
+			case Notification.SET:
+				if (notification.getOldValue() != null) {
+					familyRemoved((Family) notification.getOldValue());
+				}
+				if (notification.getNewValue() != null) {
+					familyAdded((Family) notification.getNewValue());
+				}
+				break;
+			default:
+				break;
+			}
+		} else if (feature == FamiliesPackage.Literals.FAMILY__NAME && notification.getEventType() == Notification.SET) {
+			Family family = (Family) notification.getNotifier();
+			remove(family, notification.getOldStringValue());
+			add(family);
+		}
+	}
+
+	private void familyAdded(Family family) {
+		add(family);
+		family.eAdapters().add(this);
+	}
+
+	private void familyRemoved(Family family) {
+		remove(family);
+		family.eAdapters().remove(this);
+	}
+}
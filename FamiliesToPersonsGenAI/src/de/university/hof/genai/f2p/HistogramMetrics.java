@@ -0,0 +1,123 @@
+package de.university.hof.genai.f2p;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-process metrics: counters are LongAdders and the latencies of every operation go into a
+// log-linear histogram (eight buckets per power of two, so percentiles are at most 12.5% above
+// the real value). Reading is lock-free as well; a report is a consistent-enough snapshot for
+// dashboards and alerts, not an exact one.
+public class HistogramMetrics implements TransformationMetrics {
+
+	private static final int LINEAR_BUCKETS = 16;
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int BUCKETS = LINEAR_BUCKETS + (63 - 4) * (1 << SUB_BUCKET_BITS);
+
+	private final LongAdder[] counters = new LongAdder[Counter.values().length];
+	private final Latencies[] latencies = new Latencies[Operation.values().length];
+
+	private static final class Latencies {
+		final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		final LongAdder count = new LongAdder();
+		final LongAdder totalNanos = new LongAdder();
+		final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	}
+
+	public HistogramMetrics() {
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new LongAdder();
+		}
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new Latencies();
+		}
+	}
+
+    @Override
+    public void increment(Counter counter, long amount) {
+        counters[counter.ordinal()].add(amount);
+    }
+
+    @Override
+    public void record(Operation operation, long nanos) {
+        Latencies latency = latencies[operation.ordinal()];
+        long value = Math.max(0, nanos);
+        latency.buckets.incrementAndGet(bucket(value));
+        latency.count.increment();
+        latency.totalNanos.add(value);
+        latency.maxNanos.accumulate(value);
+    }
+
+    public long getCount(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    public long getCount(Operation operation) {
+        return latencies[operation.ordinal()].count.sum();
+    }
+
+    public long getTotalNanos(Operation operation) {
+        return latencies[operation.ordinal()].totalNanos.sum();
+    }
+
+    public long getMaxNanos(Operation operation) {
+        return latencies[operation.ordinal()].maxNanos.get();
+    }
+
+    // Upper bound of the bucket holding the given percentile (0 to 100), or 0 without records
+    public long getPercentileNanos(Operation operation, double percentile) {
+        AtomicLongArray buckets = latencies[operation.ordinal()].buckets;
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMaxNanos(operation));
+            }
+        }
+        return getMaxNanos(operation);
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < LINEAR_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return LINEAR_BUCKETS + ((exponent - 4) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = ((bucket - LINEAR_BUCKETS) >>> SUB_BUCKET_BITS) + 4;
+        long subBucket = (bucket - LINEAR_BUCKETS) & ((1 << SUB_BUCKET_BITS) - 1);
+        long lowerBound = (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (Counter counter : Counter.values()) {
+            report.append(String.format("%-28s %12d%n", counter, getCount(counter)));
+        }
+        for (Operation operation : Operation.values()) {
+            long count = getCount(operation);
+            if (count > 0) {
+                report.append(String.format("%-28s %12d  mean %10.1f us  p50 %10.1f us  p99 %10.1f us  max %10.1f us%n",
+                        operation, count, getTotalNanos(operation) / 1e3 / count, getPercentileNanos(operation, 50) / 1e3,
+                        getPercentileNanos(operation, 99) / 1e3, getMaxNanos(operation) / 1e3));
+            }
+        }
+        return report.toString();
+    }
+}
@@ -1,19 +1,29 @@
 package de.university.hof.genai.f2p;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.eclipse.emf.common.command.CommandStack;
 import org.eclipse.emf.common.notify.Adapter;
 import org.eclipse.emf.common.notify.Notification;
-import org.eclipse.emf.common.notify.impl.AdapterImpl;
-import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.util.BasicEList;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
-import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
-import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 
 import Families.FamiliesFactory;
 import Families.FamiliesPackage;
@@ -26,14 +36,49 @@ import Persons.Person;
 import Persons.PersonRegister;
 import Persons.PersonsFactory;
 import Persons.PersonsPackage;
+import de.university.hof.genai.f2p.TransformationMetrics.Counter;
+import de.university.hof.genai.f2p.TransformationMetrics.Operation;
 
 public class IncrementalModelTransformer {
+
+	// What the change listener attaches itself to. Every element costs an adapter list, which on
+	// these models is about as large as a FamilyMember or Person itself.
+	public enum ListenerScope {
+		// Registers, families, members and persons: every edit is propagated
+		ALL,
+		// Registers and families only, so there is one adapter list per family instead of one per
+		// element. Added, removed and replaced families, members and persons, family renames and
+		// role changes are propagated; renames of members and persons only through rename().
+		STRUCTURE
+	}
 	
 	private Resource familiesResource;
 	private Resource personsResource;
 	private boolean preferParent = true;
 	private boolean preferExisting = true;
-	private boolean isTransforming = false;
+	// Echo suppression: set while the current thread propagates or transforms, so the changes it
+	// makes itself are not handled again, while changes of other threads still are
+	private final ThreadLocal<Boolean> isTransforming = ThreadLocal.withInitial(() -> Boolean.FALSE);
+	// Serializes all propagation and all edits made through modify()
+	private final ReentrantLock lock = new ReentrantLock();
+	private FamilyIndex familyIndex;
+	private ListenerScope listenerScope = ListenerScope.ALL;
+	private boolean listening = false;
+	private boolean batching = false;
+	private int maxPendingChanges = Integer.MAX_VALUE;
+	private long maxDelayNanos = Long.MAX_VALUE;
+	private final ChangeBatch pendingChanges = new ChangeBatch();
+	// Index from which the position hints of the trace may be too low or missing: persons from
+	// there on were moved or inserted in front of by an edit from outside, or added while
+	// batching. The hints are rebuilt from there before they are used again.
+	private int positionsStaleFrom = Integer.MAX_VALUE;
+	// Persons removed since all hints were last recorded. Removals only move the persons behind
+	// them to lower positions, so a hint is too high by at most this many.
+	private int removedSinceRecorded = 0;
+	// Beyond this, looking back from the hints costs more than recording all of them again
+	private static final int MAX_REMOVED_SINCE_RECORDED = 1024;
+	private ModelPersistence persistence = new ModelPersistence(ModelPersistence.Format.XMI);
+	private TransformationMetrics metrics = TransformationMetrics.NOOP;
 	
 	public IncrementalModelTransformer(Resource source, Resource target) {
 		familiesResource = source;
@@ -45,257 +90,833 @@ public class IncrementalModelTransformer {
 		this.preferExisting = preferExisting;
 	}
 
-    private Map<FamilyMember, Person> familyMemberToPersonMap = new HashMap<>();
-    private Map<Person, FamilyMember> personToFamilyMemberMap = new HashMap<>();
+	public void setListenerScope(ListenerScope listenerScope) {
+		// The listener decides where to attach itself while it follows the tree
+		if (listening) {
+			throw new IllegalStateException("The listener scope must be set before the listeners are added");
+		}
+		this.listenerScope = listenerScope;
+	}
+
+	public void setBatching(boolean batching) {
+		// While batching, changes are only recorded and propagated together by flush()
+		this.batching = batching;
+		if (!batching) {
+			flush();
+		}
+	}
+
+	public void setBatchLimits(int maxPendingChanges, long maxDelayMillis) {
+		// A batch is flushed as soon as it holds maxPendingChanges elements, or when a change
+		// arrives after the oldest pending one has waited longer than maxDelayMillis
+		this.maxPendingChanges = maxPendingChanges;
+		this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+	}
+
+	public void flushOn(CommandStack commandStack) {
+		// Propagate once per executed, undone or redone command
+		commandStack.addCommandStackListener(event -> flush());
+	}
+
+	public void setPersistence(ModelPersistence persistence) {
+		// Format and options used by saveModel
+		this.persistence = persistence;
+	}
+
+	public void setMetrics(TransformationMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+    // Lookups need no lock; links are only written while holding the lock
+    private final Trace trace = new Trace();
     
 	public static void main(String[] args) {
 	    // Load Families and Persons models
-	    ResourceSet resourceSet = new ResourceSetImpl();
-	    resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore", new XMIResourceFactoryImpl());
-	    resourceSet.getPackageRegistry().put(FamiliesPackage.eNS_URI, FamiliesPackage.eINSTANCE);
-	    resourceSet.getPackageRegistry().put(PersonsPackage.eNS_URI, PersonsPackage.eINSTANCE);
+	    ModelPersistence persistence = new ModelPersistence(ModelPersistence.Format.XMI);
+	    ResourceSet resourceSet = persistence.createResourceSet();
 	
-	    Resource familiesResource = resourceSet.getResource(URI.createFileURI("path/to/Families.ecore"), true);
-	    Resource personsResource = resourceSet.getResource(URI.createFileURI("path/to/Persons.ecore"), true);
+	    Resource familiesResource = persistence.load(resourceSet, "path/to/Families.ecore");
+	    Resource personsResource = persistence.load(resourceSet, "path/to/Persons.ecore");
 	
 	    FamilyRegister familyRegister = (FamilyRegister) familiesResource.getContents().get(0);
 	    PersonRegister personRegister = (PersonRegister) personsResource.getContents().get(0);
 	    
 	    IncrementalModelTransformer t = new IncrementalModelTransformer(familiesResource, personsResource);
+	    t.setPersistence(persistence);
 	
 	    // Add listeners for changes
 	    t.addFamilyRegisterListener(familyRegister, personRegister);
 	    t.addPersonRegisterListener(personRegister, familyRegister);
 	
-	    // Initial transformation
-	    t.transformFamiliesToPersons(familyRegister, personRegister);
-	    t.transformPersonsToFamilies(personRegister, familyRegister, true, true);
+	    // Initial transformation, unless the trace of a previous run still fits the models
+	    if (!t.loadTrace("path/to/Families2Persons.trace")) {
+	        t.transformFamiliesToPersons(familyRegister, personRegister);
+	        t.transformPersonsToFamilies(personRegister, familyRegister, true, true);
+	    }
 	
 	    // Save the transformed models
 	    t.saveModel(familiesResource, "path/to/TransformedFamilies.xmi");
 	    t.saveModel(personsResource, "path/to/TransformedPersons.xmi");
+	    t.saveTrace("path/to/Families2Persons.trace");
 	}
 	
 	public void addFamilyRegisterListener(FamilyRegister familyRegister, PersonRegister personRegister) {
-        Adapter familyAdapter = new AdapterImpl() {
-            @Override
-            public void notifyChanged(Notification notification) {
-                if (!isTransforming) {
-                    handleFamilyRegisterChange(notification, personRegister);
-                }
-            }
-        };
-        familyRegister.eAdapters().add(familyAdapter);
-        
-        for (Family family : familyRegister.getFamilies()) {
-            addFamilyListener(family);
-        }
+        addChangeListener(familyRegister);
     }
 	
 	public void addFamilyListener(Family family) {
-        Adapter familyMemberAdapter = new AdapterImpl() {
-            @Override
-            public void notifyChanged(Notification notification) {
-                if (notification.getNotifier() instanceof FamilyMember) {
-                    FamilyMember familyMember = (FamilyMember) notification.getNotifier();
-                    updatePersonFromFamilyMember(familyMember);
+        addChangeListener(family);
+    }
+
+    public void addPersonRegisterListener(PersonRegister personRegister, FamilyRegister familyRegister) {
+        addChangeListener(personRegister);
+    }
+
+    private void addChangeListener(EObject root) {
+        // The listener adds itself to the contents of root (and later to added contents)
+        listening = true;
+        if (!root.eAdapters().contains(changeListener)) {
+            root.eAdapters().add(changeListener);
+        }
+    }
+
+    // One listener instance for both models. It follows the containment tree, attaching itself to
+    // added families, members and persons (including the ones created by the transformation) and
+    // detaching from removed ones, and dispatches each change by the kind of notifier.
+    //
+    // With ListenerScope.ALL this is not cheaper than the former per-member adapters: families and
+    // persons get an adapter list of their own as well, which about doubles the retained heap per
+    // element. EMF only notifies a rename to the renamed object, though, so without them renames of
+    // families and persons went unnoticed, as did members added to existing families.
+    // ListenerScope.STRUCTURE leaves members and persons out and needs less than a tenth of that.
+    private final EContentAdapter changeListener = new EContentAdapter() {
+        // The models hold no containment proxies, so the contents need no resolving iterator
+        @Override
+        protected boolean resolve() {
+            return false;
+        }
+
+        // Most elements have no other adapter, so a new adapter list gives up its spare capacity
+        @Override
+        protected void addAdapter(Notifier notifier) {
+            if (!isListened(notifier)) {
+                return;
+            }
+            EList<Adapter> adapters = notifier.eAdapters();
+            if (!adapters.contains(this)) {
+                adapters.add(this);
+                if (adapters.size() == 1 && adapters instanceof BasicEList) {
+                    ((BasicEList<Adapter>) adapters).shrink();
                 }
-                
             }
-        };
+        }
 
-        if (family.getFather() != null) {
-            family.getFather().eAdapters().add(familyMemberAdapter);
+        // Asking an element that was never listened to for its adapters would create an empty list
+        @Override
+        protected void removeAdapter(Notifier notifier) {
+            if (isListened(notifier)) {
+                super.removeAdapter(notifier);
+            }
         }
-        if (family.getMother() != null) {
-            family.getMother().eAdapters().add(familyMemberAdapter);
+
+        @Override
+        public void notifyChanged(Notification notification) {
+            lock.lock();
+            try {
+                super.notifyChanged(notification);
+                if (notification.isTouch()) {
+                    return;
+                }
+                if (isTransforming.get()) {
+                    metrics.increment(Counter.NOTIFICATIONS_SUPPRESSED);
+                    return;
+                }
+                shiftedPersons(notification);
+                if (batching) {
+                    metrics.increment(Counter.NOTIFICATIONS_BATCHED);
+                    pendingChanges.record(notification);
+                    if (pendingChanges.size() >= maxPendingChanges
+                            || System.nanoTime() - pendingChanges.getFirstChangeTime() >= maxDelayNanos) {
+                        flush();
+                    }
+                    return;
+                }
+                metrics.increment(Counter.NOTIFICATIONS_HANDLED);
+                long start = System.nanoTime();
+                Object notifier = notification.getNotifier();
+                runTransforming(() -> {
+                    if (notifier instanceof FamilyMember) {
+                        updatePersonFromFamilyMember((FamilyMember) notifier);
+                    } else if (notifier instanceof Family || notifier instanceof FamilyRegister) {
+                        handleFamilyRegisterChange(notification, getPersonRegister());
+                    } else if (notifier instanceof Person || notifier instanceof PersonRegister) {
+                        handlePersonRegisterChange(notification, getFamilyRegister());
+                    }
+                });
+                boolean personsChange = notifier instanceof Person || notifier instanceof PersonRegister;
+                metrics.record(personsChange ? Operation.PROPAGATE_PERSONS_CHANGE : Operation.PROPAGATE_FAMILIES_CHANGE, System.nanoTime() - start);
+            } finally {
+                lock.unlock();
+            }
         }
-        for (FamilyMember son : family.getSons()) {
-            son.eAdapters().add(familyMemberAdapter);
+    };
+
+    private boolean isListened(Notifier notifier) {
+        return listenerScope == ListenerScope.ALL || !(notifier instanceof FamilyMember || notifier instanceof Person);
+    }
+
+    // Renames a member and propagates the rename. The listener of the STRUCTURE scope does not see
+    // member renames, so they are made through here; in the ALL scope this is setName.
+    public void rename(FamilyMember familyMember, String name) {
+        lock.lock();
+        try {
+            if (listenerScope == ListenerScope.ALL) {
+                familyMember.setName(name);
+                return;
+            }
+            flush();
+            familyMember.setName(name);
+            runTransforming(() -> updatePersonFromFamilyMember(familyMember));
+        } finally {
+            lock.unlock();
         }
-        for (FamilyMember daughter : family.getDaughters()) {
-            daughter.eAdapters().add(familyMemberAdapter);
+    }
+
+    // Renames a person and propagates the rename, like rename(FamilyMember, String)
+    public void rename(Person person, String name) {
+        lock.lock();
+        try {
+            if (listenerScope == ListenerScope.ALL) {
+                person.setName(name);
+                return;
+            }
+            flush();
+            person.setName(name);
+            runTransforming(() -> updateFamilyMemberFromPerson(person, getFamilyRegister()));
+        } finally {
+            lock.unlock();
         }
     }
 
-    public void addPersonRegisterListener(PersonRegister personRegister, FamilyRegister familyRegister) {
-        Adapter personAdapter = new AdapterImpl() {
-            @Override
-            public void notifyChanged(Notification notification) {
-                if (!isTransforming) {
-                    handlePersonRegisterChange(notification, familyRegister);
-                }
+    // Takes note of persons the notification removed, moved or added. Added persons count even
+    // at the end of the register, since a batched addition is only linked, and can only be given
+    // a position hint, once the batch is flushed.
+    private void shiftedPersons(Notification notification) {
+        if (notification.getFeature() != PersonsPackage.Literals.PERSON_REGISTER__PERSONS) {
+            return;
+        }
+        switch (notification.getEventType()) {
+        case Notification.ADD:
+        case Notification.ADD_MANY:
+            positionsStaleFrom = Math.min(positionsStaleFrom, notification.getPosition());
+            break;
+        case Notification.MOVE:
+            positionsStaleFrom = Math.min(positionsStaleFrom, Math.min(notification.getPosition(), (Integer) notification.getOldValue()));
+            break;
+        case Notification.REMOVE:
+            removedSinceRecorded++;
+            break;
+        case Notification.REMOVE_MANY:
+            removedSinceRecorded += ((List<?>) notification.getOldValue()).size();
+            break;
+        default:
+            break;
+        }
+    }
+
+    public void modify(Runnable edit) {
+        // EMF models are not thread-safe: editors on other threads make their changes through
+        // here, so that each edit and its propagation run one after the other
+        lock.lock();
+        try {
+            edit.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runTransforming(Runnable transformation) {
+        lock.lock();
+        Boolean wasTransforming = isTransforming.get();
+        isTransforming.set(Boolean.TRUE);
+        try {
+            transformation.run();
+        } finally {
+            isTransforming.set(wasTransforming);
+            lock.unlock();
+        }
+    }
+
+    public void flush() {
+        lock.lock();
+        try {
+            if (isTransforming.get() || pendingChanges.isEmpty()) {
+                return;
             }
-        };
-        personRegister.eAdapters().add(personAdapter);
+            long start = System.nanoTime();
+            runTransforming(() -> pendingChanges.drain(this::applyChange));
+            // The persons added by the batch are linked now and get their position hints
+            if (positionsStaleFrom != Integer.MAX_VALUE && !personsResource.getContents().isEmpty()) {
+                recordStalePositions(getPersonRegister().getPersons());
+            }
+            metrics.record(Operation.FLUSH, System.nanoTime() - start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Person getPerson(FamilyMember familyMember) {
+        return trace.getPerson(familyMember);
+    }
+
+    public FamilyMember getFamilyMember(Person person) {
+        return trace.getFamilyMember(person);
+    }
+
+    // Where the trace last saw the person in its register, or -1; for the tests
+    int getPositionHint(Person person) {
+        return trace.getPosition(person);
+    }
+
+    private void applyChange(EObject element, ChangeBatch.Change change) {
+        if (element instanceof Family) {
+            Family family = (Family) element;
+            if (change == ChangeBatch.Change.ADDED) {
+                transformFamilyToPersons(family, getPersonRegister());
+            } else if (change == ChangeBatch.Change.REMOVED) {
+                removeFamilyPersons(family, getPersonRegister());
+            } else {
+                updatePersonsFromFamily(family);
+            }
+        } else if (element instanceof FamilyMember) {
+            Family family = findFamilyByMember((FamilyMember) element);
+            // Members of a family that was removed as a whole go with removeFamilyPersons
+            if (family == null || family.eContainer() != null) {
+                updatePersonFromFamilyMember((FamilyMember) element);
+            }
+        } else if (element instanceof Person) {
+            Person person = (Person) element;
+            if (change == ChangeBatch.Change.ADDED) {
+                transformPersonToFamilyMember(person, getFamilyRegister(), preferExisting, preferParent);
+            } else if (change == ChangeBatch.Change.REMOVED) {
+                removePersonFamilyMember(person, getFamilyRegister());
+            } else {
+                updateFamilyMemberFromPerson(person, getFamilyRegister());
+            }
+        }
     }
 
     public void handleFamilyRegisterChange(Notification notification, PersonRegister personRegister) {
-        if (notification.getEventType() == Notification.ADD) {
-            if (notification.getNewValue() instanceof Family) {
-                Family family = (Family) notification.getNewValue();
-                transformFamilyToPersons(family, personRegister);
-                addFamilyListener(family);
+        switch (notification.getEventType()) {
+        case Notification.ADD:
+            familyValueAdded(notification.getNewValue(), personRegister);
+            break;
+        case Notification.ADD_MANY:
+            // addAll, or the summary of a bulk transformation
+            for (Object value : (List<?>) notification.getNewValue()) {
+                familyValueAdded(value, personRegister);
+            }
+            break;
+        case Notification.REMOVE:
+            familyValueRemoved(notification.getOldValue(), personRegister);
+            break;
+        case Notification.REMOVE_MANY:
+            // removeAll or clear; the positions in getNewValue() are not needed
+            for (Object value : (List<?>) notification.getOldValue()) {
+                familyValueRemoved(value, personRegister);
             }
-        } else if (notification.getEventType() == Notification.REMOVE) {
-            if (notification.getOldValue() instanceof Family) {
-                Family family = (Family) notification.getOldValue();
-                removeFamilyPersons(family, personRegister);
+            break;
+        case Notification.SET:
+            if (notification.getFeature() == FamiliesPackage.Literals.FAMILY__NAME) {
+                updatePersonsFromFamily((Family) notification.getNotifier());
+            } else {
+                // A family replaced by another one at the same position, or a father or mother
+                // set, replaced or unset
+                familyValueRemoved(notification.getOldValue(), personRegister);
+                familyValueAdded(notification.getNewValue(), personRegister);
             }
-        } else if (notification.getEventType() == Notification.SET) {
-            // Handle attribute modifications
-            // Add further logic if needed
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void familyValueAdded(Object value, PersonRegister personRegister) {
+        if (value instanceof Family) {
+            transformFamilyToPersons((Family) value, personRegister);
+        } else if (value instanceof FamilyMember) {
+            // A member added to an existing family
+            updatePersonFromFamilyMember((FamilyMember) value);
+        }
+    }
+
+    private void familyValueRemoved(Object value, PersonRegister personRegister) {
+        if (value instanceof Family) {
+            removeFamilyPersons((Family) value, personRegister);
+        } else if (value instanceof FamilyMember) {
+            updatePersonFromFamilyMember((FamilyMember) value);
         }
     }
 
     public void handlePersonRegisterChange(Notification notification, FamilyRegister familyRegister) {
-        if (notification.getEventType() == Notification.ADD) {
+        switch (notification.getEventType()) {
+        case Notification.ADD:
             if (notification.getNewValue() instanceof Person) {
                 Person person = (Person) notification.getNewValue();
                 transformPersonToFamilyMember(person, familyRegister, preferExisting, preferParent);
+                trace.setPosition(person, notification.getPosition());
+            }
+            break;
+        case Notification.ADD_MANY:
+            int position = notification.getPosition();
+            for (Object value : (List<?>) notification.getNewValue()) {
+                if (value instanceof Person) {
+                    transformPersonToFamilyMember((Person) value, familyRegister, preferExisting, preferParent);
+                    trace.setPosition((Person) value, position);
+                }
+                position++;
             }
-        } else if (notification.getEventType() == Notification.REMOVE) {
+            break;
+        case Notification.REMOVE:
             if (notification.getOldValue() instanceof Person) {
-                Person person = (Person) notification.getOldValue();
-                removePersonFamilyMember(person, familyRegister);
+                removePersonFamilyMember((Person) notification.getOldValue(), familyRegister);
+            }
+            break;
+        case Notification.REMOVE_MANY:
+            for (Object value : (List<?>) notification.getOldValue()) {
+                if (value instanceof Person) {
+                    removePersonFamilyMember((Person) value, familyRegister);
+                }
+            }
+            break;
+        case Notification.SET:
+            if (notification.getFeature() == PersonsPackage.Literals.PERSON__NAME) {
+                updateFamilyMemberFromPerson((Person) notification.getNotifier(), familyRegister);
+            } else if (notification.getFeature() == PersonsPackage.Literals.PERSON_REGISTER__PERSONS) {
+                // A person replaced at the same position, typically by one of the other gender
+                replacePersonFamilyMember((Person) notification.getOldValue(), (Person) notification.getNewValue(), familyRegister);
             }
-        } else if (notification.getEventType() == Notification.SET) {
-            // Handle attribute modifications
-            // Add further logic if needed
+            // Birthdays have no counterpart in the Families model, so there is nothing to propagate
+            break;
+        default:
+            break;
         }
     }
     
     public void updatePersonFromFamilyMember(FamilyMember familyMember) {
-        Person person = familyMemberToPersonMap.get(familyMember);
-        if (person != null) {
-            Family family = findFamilyByMember(familyMember);
-            if (family == null) {
-                // Remove the person if the family member is no longer part of a family
-                personToFamilyMemberMap.remove(person);
-                familyMemberToPersonMap.remove(familyMember);
-                person.eResource().getContents().remove(person);
+        Person person = trace.getPerson(familyMember);
+        Family family = findFamilyByMember(familyMember);
+        if (person == null) {
+            if (family != null) {
+                transformFamilyToPersons(family, getPersonRegister());
+            }
+        } else if (family == null) {
+            // Remove the person if the family member is no longer part of a family
+            if (person.eContainer() instanceof PersonRegister) {
+                removePerson(((PersonRegister) person.eContainer()).getPersons(), person);
             } else {
-                person.setName(family.getName() + ", " + familyMember.getName());
+                EcoreUtil.remove(person);
+            }
+            trace.unlinkFamilyMember(familyMember);
+            metrics.increment(Counter.PERSONS_REMOVED);
+        } else if (isMaleRole(findRoleOfMember(familyMember)) != person instanceof Male) {
+            // Moved between a male and a female role, so the person has to change its type
+            Person replacement = isMaleRole(findRoleOfMember(familyMember)) ? PersonsFactory.eINSTANCE.createMale() : PersonsFactory.eINSTANCE.createFemale();
+            replacement.setName(PersonNames.compose(family.getName(), familyMember.getName()));
+            replacement.setBirthday(person.getBirthday());
+            int position = -1;
+            if (person.eContainer() instanceof PersonRegister) {
+                EList<Person> persons = ((PersonRegister) person.eContainer()).getPersons();
+                position = positionOf(persons, person);
+                persons.set(position, replacement);
             }
+            trace.link(familyMember, replacement, position);
+        } else if (!pendingChanges.contains(person)) {
+            // A person with a batched edit of its own is synchronized by that edit
+            person.setName(PersonNames.compose(family.getName(), familyMember.getName()));
         }
     }
-    
-    public Family findFamilyByMember(FamilyMember familyMember) {
-        for (Family family : ((FamilyRegister) familiesResource.getContents().get(0)).getFamilies()) {
-            if (family.getFather() == familyMember || family.getMother() == familyMember ||
-                family.getSons().contains(familyMember) || family.getDaughters().contains(familyMember)) {
-                return family;
+
+    public void updatePersonsFromFamily(Family family) {
+        // Only the persons of this family carry its name
+        for (FamilyMember familyMember : getMembers(family)) {
+            Person person = trace.getPerson(familyMember);
+            if (person != null && !pendingChanges.contains(person)) {
+                person.setName(PersonNames.compose(family.getName(), familyMember.getName()));
             }
         }
+    }
+
+    public void updateFamilyMemberFromPerson(Person person, FamilyRegister familyRegister) {
+        FamilyMember familyMember = trace.getFamilyMember(person);
+        if (familyMember == null) {
+            // The previous name may have been malformed
+            transformPersonToFamilyMember(person, familyRegister, preferExisting, preferParent);
+            return;
+        }
+
+        PersonNames.Parser names = new PersonNames.Parser(false);
+        if (!names.parse(person.getName())) {
+            // A malformed name has no counterpart
+            metrics.increment(Counter.MALFORMED_NAMES_SKIPPED);
+            removePersonFamilyMember(person, familyRegister);
+            return;
+        }
+        String familyName = names.getFamilyName();
+        String personName = names.getMemberName();
+
+        Family family = findFamilyByMember(familyMember);
+        if (family != null && familyName.equals(family.getName())
+                && isMaleRole(findRoleOfMember(familyMember)) == person instanceof Male) {
+            familyMember.setName(personName);
+            return;
+        }
+
+        // Move the member to the family (and role) the person now belongs to
+        removeFromFamily(familyMember);
+        familyMember.setName(personName);
+        Family targetFamily = findOrCreateFamily(familyRegister, familyName, preferExisting);
+        addToFamily(targetFamily, familyMember, person, preferParent);
+    }
+
+    public void replacePersonFamilyMember(Person oldPerson, Person newPerson, FamilyRegister familyRegister) {
+        FamilyMember familyMember = oldPerson == null ? null : trace.unlinkPerson(oldPerson);
+        if (familyMember == null) {
+            if (newPerson != null) {
+                transformPersonToFamilyMember(newPerson, familyRegister, preferExisting, preferParent);
+            }
+        } else if (newPerson == null) {
+            removeFromFamily(familyMember);
+            metrics.increment(Counter.MEMBERS_REMOVED);
+        } else {
+            // Keep the member and let the new person decide about its family and role
+            trace.link(familyMember, newPerson);
+            updateFamilyMemberFromPerson(newPerson, familyRegister);
+        }
+    }
+
+    public Family findFamilyByMember(FamilyMember familyMember) {
+        // Members are contained by their family, so the container is the family
+        if (familyMember.eContainer() instanceof Family) {
+            return (Family) familyMember.eContainer();
+        }
+        return null;
+    }
+
+    public EReference findRoleOfMember(FamilyMember familyMember) {
+        // father, mother, sons or daughters
+        if (familyMember.eContainer() instanceof Family) {
+            return familyMember.eContainmentFeature();
+        }
         return null;
     }
 
     public void transformFamiliesToPersons(FamilyRegister familyRegister, PersonRegister personRegister) {
-        isTransforming = true;
-        try {
+        long start = System.nanoTime();
+        runTransforming(() -> {
+            Map<String, List<Person>> unmappedPersons = indexUnmappedPersons(personRegister);
+            boolean reused = false;
             for (Family family : familyRegister.getFamilies()) {
-                transformFamilyToPersons(family, personRegister);
+                List<FamilyMember> newMembers = new ArrayList<>();
+                List<Person> newPersons = new ArrayList<>();
+                createPersons(family, newMembers, newPersons);
+                reused |= addPersons(newMembers, newPersons, personRegister, unmappedPersons);
             }
-        } finally {
-            isTransforming = false;
-        }
+            if (reused) {
+                recordPositions(personRegister.getPersons(), 0);
+            }
+        });
+        metrics.record(Operation.FAMILIES_TO_PERSONS, System.nanoTime() - start);
+    }
+
+    public void transformFamiliesToPersons(FamilyRegister familyRegister, PersonRegister personRegister, int parallelism) {
+        long start = System.nanoTime();
+        runTransforming(() -> {
+            // Persons are created per chunk of families in parallel; the trace maps and the
+            // person register are only updated afterwards, in the order of the families
+            List<TraceFragment> fragments = FamilyChunks.map(familyRegister.getFamilies(), parallelism, families -> {
+                TraceFragment fragment = new TraceFragment(new ArrayList<>(), new ArrayList<>());
+                for (Family family : families) {
+                    createPersons(family, fragment.members(), fragment.persons());
+                }
+                return fragment;
+            });
+            int count = 0;
+            for (TraceFragment fragment : fragments) {
+                count += fragment.persons().size();
+            }
+            List<FamilyMember> newMembers = new ArrayList<>(count);
+            List<Person> newPersons = new ArrayList<>(count);
+            for (TraceFragment fragment : fragments) {
+                newMembers.addAll(fragment.members());
+                newPersons.addAll(fragment.persons());
+            }
+            if (addPersons(newMembers, newPersons, personRegister, indexUnmappedPersons(personRegister))) {
+                recordPositions(personRegister.getPersons(), 0);
+            }
+        });
+        metrics.record(Operation.FAMILIES_TO_PERSONS, System.nanoTime() - start);
     }
 
     public void transformFamilyToPersons(Family family, PersonRegister personRegister) {
+        List<FamilyMember> newMembers = new ArrayList<>();
         List<Person> newPersons = new ArrayList<>();
+        createPersons(family, newMembers, newPersons);
+        addPersons(newMembers, newPersons, personRegister, null);
+    }
+
+    // Records the trace links and adds the persons to the register. A person for which the register
+    // already holds an unmapped person of the same name and type is not added; that person is
+    // linked instead, so models that are already in sync are not duplicated. Returns whether any
+    // person was linked that way; its position is not known then.
+    private boolean addPersons(List<FamilyMember> members, List<Person> persons, PersonRegister personRegister, Map<String, List<Person>> unmappedPersons) {
+        List<Person> newPersons = new ArrayList<>(persons.size());
+        int position = personRegister.getPersons().size();
+        boolean reused = false;
+        for (int i = 0; i < members.size(); i++) {
+            Person person = unmappedPersons == null ? null : takeUnmappedPerson(unmappedPersons, persons.get(i));
+            if (person == null) {
+                person = persons.get(i);
+                newPersons.add(person);
+                trace.link(members.get(i), person, position++);
+            } else {
+                trace.link(members.get(i), person);
+                reused = true;
+            }
+        }
 
+        // Add new persons after iteration
+        personRegister.getPersons().addAll(newPersons);
+        metrics.increment(Counter.PERSONS_CREATED, newPersons.size());
+        return reused;
+    }
+
+    private Map<String, List<Person>> indexUnmappedPersons(PersonRegister personRegister) {
+        Map<String, List<Person>> unmappedPersons = new HashMap<>();
+        for (Person person : personRegister.getPersons()) {
+            if (person.getName() != null && !trace.containsPerson(person)) {
+                unmappedPersons.computeIfAbsent(person.getName(), name -> new ArrayList<>(1)).add(person);
+            }
+        }
+        return unmappedPersons;
+    }
+
+    private static Person takeUnmappedPerson(Map<String, List<Person>> unmappedPersons, Person like) {
+        List<Person> candidates = unmappedPersons.get(like.getName());
+        if (candidates != null) {
+            for (int i = 0; i < candidates.size(); i++) {
+                if (candidates.get(i).eClass() == like.eClass()) {
+                    return candidates.remove(i);
+                }
+            }
+        }
+        return null;
+    }
+
+    // Creates persons for the members of the family that are not mapped yet, without touching the
+    // trace maps; members[i] corresponds to persons[i]
+    private void createPersons(Family family, List<FamilyMember> members, List<Person> persons) {
         // Transform father
-        if (family.getFather() != null && !familyMemberToPersonMap.containsKey(family.getFather())) {
+        if (family.getFather() != null && !trace.containsFamilyMember(family.getFather())) {
             Male father = PersonsFactory.eINSTANCE.createMale();
-            father.setName(family.getName() + ", " + family.getFather().getName());
-            newPersons.add(father);
-            familyMemberToPersonMap.put(family.getFather(), father);
-            personToFamilyMemberMap.put(father, family.getFather());
+            father.setName(PersonNames.compose(family.getName(), family.getFather().getName()));
+            members.add(family.getFather());
+            persons.add(father);
         }
         // Transform mother
-        if (family.getMother() != null && !familyMemberToPersonMap.containsKey(family.getMother())) {
+        if (family.getMother() != null && !trace.containsFamilyMember(family.getMother())) {
             Female mother = PersonsFactory.eINSTANCE.createFemale();
-            mother.setName(family.getName() + ", " + family.getMother().getName());
-            newPersons.add(mother);
-            familyMemberToPersonMap.put(family.getMother(), mother);
-            personToFamilyMemberMap.put(mother, family.getMother());
+            mother.setName(PersonNames.compose(family.getName(), family.getMother().getName()));
+            members.add(family.getMother());
+            persons.add(mother);
         }
         // Transform sons
         for (FamilyMember son : family.getSons()) {
-            if (!familyMemberToPersonMap.containsKey(son)) {
+            if (!trace.containsFamilyMember(son)) {
                 Male maleSon = PersonsFactory.eINSTANCE.createMale();
-                maleSon.setName(family.getName() + ", " + son.getName());
-                newPersons.add(maleSon);
-                familyMemberToPersonMap.put(son, maleSon);
-                personToFamilyMemberMap.put(maleSon, son);
+                maleSon.setName(PersonNames.compose(family.getName(), son.getName()));
+                members.add(son);
+                persons.add(maleSon);
             }
         }
         // Transform daughters
         for (FamilyMember daughter : family.getDaughters()) {
-            if (!familyMemberToPersonMap.containsKey(daughter)) {
+            if (!trace.containsFamilyMember(daughter)) {
                 Female femaleDaughter = PersonsFactory.eINSTANCE.createFemale();
-                femaleDaughter.setName(family.getName() + ", " + daughter.getName());
-                newPersons.add(femaleDaughter);
-                familyMemberToPersonMap.put(daughter, femaleDaughter);
-                personToFamilyMemberMap.put(femaleDaughter, daughter);
+                femaleDaughter.setName(PersonNames.compose(family.getName(), daughter.getName()));
+                members.add(daughter);
+                persons.add(femaleDaughter);
             }
         }
+    }
 
-        // Add new persons after iteration
-        personRegister.getPersons().addAll(newPersons);
+    private record TraceFragment(List<FamilyMember> members, List<Person> persons) {
     }
 
     public void removeFamilyPersons(Family family, PersonRegister personRegister) {
-        if (family.getFather() != null) {
-            Person person = familyMemberToPersonMap.remove(family.getFather());
-            personToFamilyMemberMap.remove(person);
-            personRegister.getPersons().remove(person);
+        EList<Person> persons = personRegister.getPersons();
+        List<FamilyMember> members = getMembers(family);
+        // The positions are looked up first, while the links still have their hints
+        int[] positions = new int[members.size()];
+        int count = 0;
+        for (FamilyMember familyMember : members) {
+            Person person = trace.getPerson(familyMember);
+            if (person != null) {
+                int position = positionOf(persons, person);
+                if (position >= 0) {
+                    positions[count++] = position;
+                }
+                trace.unlinkFamilyMember(familyMember);
+                metrics.increment(Counter.PERSONS_REMOVED);
+            }
         }
-        if (family.getMother() != null) {
-            Person person = familyMemberToPersonMap.remove(family.getMother());
-            personToFamilyMemberMap.remove(person);
-            personRegister.getPersons().remove(person);
+        removePersons(persons, positions, count);
+    }
+
+    private void removePerson(EList<Person> persons, Person person) {
+        int position = positionOf(persons, person);
+        if (position >= 0) {
+            removePersons(persons, new int[] { position }, 1);
         }
-        for (FamilyMember son : family.getSons()) {
-            Person person = familyMemberToPersonMap.remove(son);
-            personToFamilyMemberMap.remove(person);
-            personRegister.getPersons().remove(person);
+    }
+
+    // Removes the persons at the given positions without searching the list for them. They are
+    // removed from the back, so the positions still to come stay valid, and the register keeps its
+    // order. The hints of the persons that moved up are left as they are; positionOf finds these
+    // persons a little before their hint.
+    private void removePersons(EList<Person> persons, int[] positions, int count) {
+        if (count == 0) {
+            return;
         }
-        for (FamilyMember daughter : family.getDaughters()) {
-            Person person = familyMemberToPersonMap.remove(daughter);
-            personToFamilyMemberMap.remove(person);
-            personRegister.getPersons().remove(person);
+        Arrays.sort(positions, 0, count);
+        runTransforming(() -> {
+            for (int i = count - 1; i >= 0; i--) {
+                persons.remove(positions[i]);
+            }
+        });
+        removedSinceRecorded += count;
+    }
+
+    // The person's position, found from its hint by looking back over as many persons as were
+    // removed since the hints were recorded; a search of the whole list if that fails
+    private int positionOf(EList<Person> persons, Person person) {
+        recordStalePositions(persons);
+        int hint = trace.getPosition(person);
+        if (hint >= 0) {
+            for (int i = Math.min(hint, persons.size() - 1); i >= 0 && i >= hint - removedSinceRecorded; i--) {
+                if (persons.get(i) == person) {
+                    if (i != hint) {
+                        trace.setPosition(person, i);
+                    }
+                    return i;
+                }
+            }
+        }
+        return persons.indexOf(person);
+    }
+
+    // Rebuilds the hints from where they are stale, or all of them once the look-back of
+    // positionOf has grown too long
+    private void recordStalePositions(EList<Person> persons) {
+        if (removedSinceRecorded > MAX_REMOVED_SINCE_RECORDED) {
+            positionsStaleFrom = 0;
+        }
+        if (positionsStaleFrom != Integer.MAX_VALUE) {
+            recordPositions(persons, positionsStaleFrom);
+            if (positionsStaleFrom == 0) {
+                removedSinceRecorded = 0;
+            }
+            positionsStaleFrom = Integer.MAX_VALUE;
+        }
+    }
+
+    // Records where the persons from the given index on are
+    private void recordPositions(EList<Person> persons, int from) {
+        for (int i = from; i < persons.size(); i++) {
+            trace.setPosition(persons.get(i), i);
         }
     }
 
     public void transformPersonsToFamilies(PersonRegister personRegister, FamilyRegister familyRegister, boolean addToExistingFamilies, boolean preferParentRole) {
-        isTransforming = true;
-        try {
+        long start = System.nanoTime();
+        runTransforming(() -> {
+            PersonNames.Parser names = new PersonNames.Parser(false);
             for (Person person : personRegister.getPersons()) {
-                transformPersonToFamilyMember(person, familyRegister, addToExistingFamilies, preferParentRole);
+                transformPersonToFamilyMember(person, familyRegister, addToExistingFamilies, preferParentRole, names);
             }
-        } finally {
-            isTransforming = false;
-        }
+            recordPositions(personRegister.getPersons(), 0);
+        });
+        metrics.record(Operation.PERSONS_TO_FAMILIES, System.nanoTime() - start);
     }
 
     public void transformPersonToFamilyMember(Person person, FamilyRegister familyRegister, boolean addToExistingFamilies, boolean preferParentRole) {
-        if (personToFamilyMemberMap.containsKey(person)) {
+        transformPersonToFamilyMember(person, familyRegister, addToExistingFamilies, preferParentRole, new PersonNames.Parser(false));
+    }
+
+    private void transformPersonToFamilyMember(Person person, FamilyRegister familyRegister, boolean addToExistingFamilies, boolean preferParentRole, PersonNames.Parser names) {
+        if (trace.containsPerson(person)) {
             return; // Skip transformation if already mapped
         }
 
-        String[] nameParts = person.getName().split(", ");
-        if (nameParts.length != 2) {
+        if (!names.parse(person.getName())) {
+            metrics.increment(Counter.MALFORMED_NAMES_SKIPPED);
             return; // Skip malformed names
         }
-        String familyName = nameParts[0];
-        String personName = nameParts[1];
+        String familyName = names.getFamilyName();
+        String personName = names.getMemberName();
 
         Family family = findOrCreateFamily(familyRegister, familyName, addToExistingFamilies);
 
-        FamilyMember familyMember = FamiliesFactory.eINSTANCE.createFamilyMember();
-        familyMember.setName(personName);
+        // Models that are already in sync (e.g. without a trace after a restart) must not get the
+        // member a second time
+        FamilyMember familyMember = findUnmappedMember(family, personName, person instanceof Male);
+        if (familyMember == null) {
+            familyMember = FamiliesFactory.eINSTANCE.createFamilyMember();
+            familyMember.setName(personName);
+            addToFamily(family, familyMember, person, preferParentRole);
+            metrics.increment(Counter.MEMBERS_CREATED);
+        }
+        trace.link(familyMember, person);
+    }
+
+    private FamilyMember findUnmappedMember(Family family, String memberName, boolean male) {
+        if (male) {
+            if (isUnmappedMember(family.getFather(), memberName)) {
+                return family.getFather();
+            }
+            for (FamilyMember son : family.getSons()) {
+                if (isUnmappedMember(son, memberName)) {
+                    return son;
+                }
+            }
+        } else {
+            if (isUnmappedMember(family.getMother(), memberName)) {
+                return family.getMother();
+            }
+            for (FamilyMember daughter : family.getDaughters()) {
+                if (isUnmappedMember(daughter, memberName)) {
+                    return daughter;
+                }
+            }
+        }
+        return null;
+    }
 
+    private boolean isUnmappedMember(FamilyMember familyMember, String memberName) {
+        return familyMember != null && memberName.equals(familyMember.getName()) && !trace.containsFamilyMember(familyMember);
+    }
+
+    public void removePersonFamilyMember(Person person, FamilyRegister familyRegister) {
+        FamilyMember familyMember = trace.unlinkPerson(person);
+        if (familyMember == null) {
+            return;
+        }
+
+        removeFromFamily(familyMember);
+        metrics.increment(Counter.MEMBERS_REMOVED);
+    }
+
+    private void addToFamily(Family family, FamilyMember familyMember, Person person, boolean preferParentRole) {
         if (preferParentRole) {
             if (person instanceof Male) {
                 if (family.getFather() == null) {
@@ -317,48 +938,161 @@ public class IncrementalModelTransformer {
                 family.getDaughters().add(familyMember);
             }
         }
-        personToFamilyMemberMap.put(person, familyMember);
-        familyMemberToPersonMap.put(familyMember, person);
     }
 
-    public void removePersonFamilyMember(Person person, FamilyRegister familyRegister) {
-        FamilyMember familyMember = personToFamilyMemberMap.remove(person);
-        familyMemberToPersonMap.remove(familyMember);
-        if (familyMember == null) {
+    private void removeFromFamily(FamilyMember familyMember) {
+        Family family = findFamilyByMember(familyMember);
+        if (family == null) {
             return;
         }
+        EReference role = findRoleOfMember(familyMember);
+        if (role == FamiliesPackage.Literals.FAMILY__FATHER) {
+            family.setFather(null);
+        } else if (role == FamiliesPackage.Literals.FAMILY__MOTHER) {
+            family.setMother(null);
+        } else if (role == FamiliesPackage.Literals.FAMILY__SONS) {
+            family.getSons().remove(familyMember);
+        } else if (role == FamiliesPackage.Literals.FAMILY__DAUGHTERS) {
+            family.getDaughters().remove(familyMember);
+        }
+    }
 
-        for (Family family : familyRegister.getFamilies()) {
-            if (family.getFather() == familyMember) {
-                family.setFather(null);
-            } else if (family.getMother() == familyMember) {
-                family.setMother(null);
-            } else if (family.getSons().contains(familyMember)) {
-                family.getSons().remove(familyMember);
-            } else if (family.getDaughters().contains(familyMember)) {
-                family.getDaughters().remove(familyMember);
-            }
+    private static boolean isMaleRole(EReference role) {
+        return role == FamiliesPackage.Literals.FAMILY__FATHER || role == FamiliesPackage.Literals.FAMILY__SONS;
+    }
+
+    static List<FamilyMember> getMembers(Family family) {
+        List<FamilyMember> members = new ArrayList<>(family.getSons().size() + family.getDaughters().size() + 2);
+        if (family.getFather() != null) {
+            members.add(family.getFather());
+        }
+        if (family.getMother() != null) {
+            members.add(family.getMother());
         }
+        members.addAll(family.getSons());
+        members.addAll(family.getDaughters());
+        return members;
+    }
+
+    private FamilyRegister getFamilyRegister() {
+        return (FamilyRegister) familiesResource.getContents().get(0);
+    }
+
+    private PersonRegister getPersonRegister() {
+        return (PersonRegister) personsResource.getContents().get(0);
     }
 
     public Family findOrCreateFamily(FamilyRegister familyRegister, String familyName, boolean addToExistingFamilies) {
         if (addToExistingFamilies) {
-            for (Family existingFamily : familyRegister.getFamilies()) {
-                if (existingFamily.getName().equals(familyName)) {
-                    return existingFamily;
-                }
+            Family existingFamily = getFamilyIndex(familyRegister).get(familyName);
+            if (existingFamily != null) {
+                return existingFamily;
             }
         }
         Family newFamily = FamiliesFactory.eINSTANCE.createFamily();
         newFamily.setName(familyName);
         familyRegister.getFamilies().add(newFamily);
+        metrics.increment(Counter.FAMILIES_CREATED);
         return newFamily;
     }
 
+    public FamilyIndex getFamilyIndex(FamilyRegister familyRegister) {
+        // The index listens to the register itself, so additions, renames and removals made by
+        // anyone (including the listeners above) are reflected without rebuilding it
+        if (familyIndex == null || familyIndex.getFamilyRegister() != familyRegister) {
+            if (familyIndex != null) {
+                familyIndex.detach();
+            }
+            familyIndex = FamilyIndex.attach(familyRegister);
+        }
+        return familyIndex;
+    }
+
+    public void saveTrace(String filePath) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            TraceFile.write(Paths.get(filePath), familiesResource, personsResource, trace::getPerson);
+            metrics.record(Operation.SAVE_TRACE, System.nanoTime() - start);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean loadTrace(String filePath) {
+        // Returns false if there is no trace file or it does not fit the loaded models; a full
+        // transformation is needed then, and the trace is left empty. A trace fits if every link
+        // joins a member and a person of matching name and gender, and every member and every
+        // person with a well-formed name has a link, so none was added after the trace was saved.
+        //
+        // The links are restored eagerly: telling whether the trace fits takes resolving all of
+        // them, and a trace restored lazily could only report a misfit once it is used.
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            Path path = Paths.get(filePath);
+            if (!Files.isRegularFile(path)) {
+                return false;
+            }
+            TraceFile.Links links = TraceFile.read(path, familiesResource, personsResource);
+            if (links == null) {
+                return false;
+            }
+            for (int i = 0; i < links.members.size(); i++) {
+                FamilyMember familyMember = links.members.get(i);
+                Person person = links.persons.get(i);
+                Family family = findFamilyByMember(familyMember);
+                if (family == null || isMaleRole(findRoleOfMember(familyMember)) != person instanceof Male
+                        || !PersonNames.matches(person.getName(), family.getName(), familyMember.getName())) {
+                    return false;
+                }
+            }
+            trace.clear();
+            for (int i = 0; i < links.members.size(); i++) {
+                trace.link(links.members.get(i), links.persons.get(i));
+            }
+            // Linking replaces earlier links of either element, so the size counts distinct pairs
+            if (trace.size() != countMembers(getFamilyRegister()) || trace.size() != countWellFormedPersons(getPersonRegister())) {
+                trace.clear();
+                return false;
+            }
+            recordPositions(getPersonRegister().getPersons(), 0);
+            metrics.record(Operation.LOAD_TRACE, System.nanoTime() - start);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int countMembers(FamilyRegister familyRegister) {
+        int count = 0;
+        for (Family family : familyRegister.getFamilies()) {
+            count += (family.getFather() == null ? 0 : 1) + (family.getMother() == null ? 0 : 1) + family.getSons().size() + family.getDaughters().size();
+        }
+        return count;
+    }
+
+    private static int countWellFormedPersons(PersonRegister personRegister) {
+        PersonNames.Parser names = new PersonNames.Parser(false);
+        int count = 0;
+        for (Person person : personRegister.getPersons()) {
+            if (names.parse(person.getName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     public void saveModel(Resource resource, String filePath) {
+        long start = System.nanoTime();
         try {
-            resource.setURI(URI.createFileURI(filePath));
-            resource.save(null);
+            persistence.save(resource, filePath);
+            metrics.record(Operation.SAVE_MODEL, System.nanoTime() - start);
         } catch (IOException e) {
             e.printStackTrace();
         }
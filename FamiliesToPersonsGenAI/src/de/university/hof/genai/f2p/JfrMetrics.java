@@ -0,0 +1,83 @@
+package de.university.hof.genai.f2p;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Publishes the metrics as Java Flight Recorder events: one event per operation (cheap while
+// JFR is not recording the event) and, once per period, one event per counter with its total
+// so far. Use close() to unregister the periodic counter event.
+public class JfrMetrics implements TransformationMetrics, AutoCloseable {
+
+	private final LongAdder[] counters = new LongAdder[Counter.values().length];
+	private final Runnable emitCounters = this::emitCounters;
+
+	@Name("de.university.hof.genai.f2p.Operation")
+	@Label("Transformation Operation")
+	@Category("Families to Persons")
+	@StackTrace(false)
+	static final class OperationEvent extends Event {
+		@Label("Operation")
+		String operation;
+
+		@Label("Latency")
+		@Timespan(Timespan.NANOSECONDS)
+		long latency;
+	}
+
+	@Name("de.university.hof.genai.f2p.Counter")
+	@Label("Transformation Counter")
+	@Category("Families to Persons")
+	@Period("1 s")
+	@StackTrace(false)
+	static final class CounterEvent extends Event {
+		@Label("Counter")
+		String counter;
+
+		@Label("Total")
+		long total;
+	}
+
+	public JfrMetrics() {
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new LongAdder();
+		}
+		FlightRecorder.addPeriodicEvent(CounterEvent.class, emitCounters);
+	}
+
+    @Override
+    public void increment(Counter counter, long amount) {
+        counters[counter.ordinal()].add(amount);
+    }
+
+    @Override
+    public void record(Operation operation, long nanos) {
+        OperationEvent event = new OperationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation.name();
+            event.latency = nanos;
+            event.commit();
+        }
+    }
+
+    private void emitCounters() {
+        for (Counter counter : Counter.values()) {
+            CounterEvent event = new CounterEvent();
+            event.counter = counter.name();
+            event.total = counters[counter.ordinal()].sum();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void close() {
+        FlightRecorder.removePeriodicEvent(emitCounters);
+    }
+}
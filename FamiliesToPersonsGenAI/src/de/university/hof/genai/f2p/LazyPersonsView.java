@@ -0,0 +1,232 @@
+package de.university.hof.genai.f2p;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+import Families.FamiliesPackage;
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Person;
+import Persons.PersonsFactory;
+
+// The Persons model of a FamilyRegister, computed on demand instead of transformed up front.
+// A Male or Female is only created when its member (or its name) is first asked for, and the
+// most recently used ones are cached up to a fixed capacity. Nothing is attached to the model
+// beforehand: the view adapts the register, and adapts a member and its family only while the
+// member's person is cached, so creating a view costs nothing and memory follows the working set.
+// The name index is built on the first lookup by name.
+//
+// A cached person is dropped as soon as its member is renamed, changes role or family, or its
+// family is renamed or removed from the register; the next access creates it anew. Persons are
+// not contained in any PersonRegister. The view is synchronized, but edits of the register still
+// have to come from one thread at a time.
+public class LazyPersonsView {
+
+	private final FamilyRegister familyRegister;
+	private final int capacity;
+	// Access ordered, so the eldest entry is the least recently used one
+	private final Map<FamilyMember, Person> persons;
+	// Number of cached persons per family; the family is adapted while this is not zero
+	private final Map<Family, Integer> cachedFamilies = new HashMap<>();
+	private final PersonNames.Parser names = new PersonNames.Parser(false);
+	private FamilyIndex familyIndex;
+
+	public LazyPersonsView(FamilyRegister familyRegister, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		this.familyRegister = familyRegister;
+		this.capacity = capacity;
+		this.persons = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<FamilyMember, Person> eldest) {
+				if (size() <= LazyPersonsView.this.capacity) {
+					return false;
+				}
+				released(eldest.getKey(), (Family) eldest.getKey().eContainer());
+				return true;
+			}
+		};
+		familyRegister.eAdapters().add(invalidator);
+	}
+
+    public FamilyRegister getFamilyRegister() {
+        return familyRegister;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getCachedPersonCount() {
+        return persons.size();
+    }
+
+    // The person of a member of this register, or null if the member is not in it
+    public synchronized Person getPerson(FamilyMember familyMember) {
+        Person person = persons.get(familyMember);
+        if (person != null) {
+            return person;
+        }
+        if (!(familyMember.eContainer() instanceof Family family) || family.eContainer() != familyRegister) {
+            return null;
+        }
+        person = createPerson(family, familyMember);
+        persons.put(familyMember, person);
+        familyMember.eAdapters().add(invalidator);
+        if (cachedFamilies.merge(family, 1, Integer::sum) == 1) {
+            family.eAdapters().add(invalidator);
+        }
+        return person;
+    }
+
+    // The person named "<family name>, <member name>". Like the name lookups of the transformers,
+    // only the first family of that name is searched.
+    public synchronized Person getPerson(String personName) {
+        if (!names.parse(personName)) {
+            return null;
+        }
+        Family family = getFamilyIndex().get(names.getFamilyName());
+        if (family == null) {
+            return null;
+        }
+        String memberName = names.getMemberName();
+        for (FamilyMember familyMember : IncrementalModelTransformer.getMembers(family)) {
+            if (memberName.equals(familyMember.getName())) {
+                return getPerson(familyMember);
+            }
+        }
+        return null;
+    }
+
+    public synchronized List<Person> getPersons(Family family) {
+        List<Person> familyPersons = new ArrayList<>();
+        for (FamilyMember familyMember : IncrementalModelTransformer.getMembers(family)) {
+            Person person = getPerson(familyMember);
+            if (person != null) {
+                familyPersons.add(person);
+            }
+        }
+        return familyPersons;
+    }
+
+    public synchronized List<Person> getPersons(String familyName) {
+        Family family = getFamilyIndex().get(familyName);
+        return family == null ? new ArrayList<>() : getPersons(family);
+    }
+
+    public synchronized void invalidateAll() {
+        for (FamilyMember familyMember : persons.keySet()) {
+            familyMember.eAdapters().remove(invalidator);
+        }
+        for (Family family : cachedFamilies.keySet()) {
+            family.eAdapters().remove(invalidator);
+        }
+        persons.clear();
+        cachedFamilies.clear();
+    }
+
+    // Detaches the view from the model
+    public synchronized void dispose() {
+        invalidateAll();
+        familyRegister.eAdapters().remove(invalidator);
+        if (familyIndex != null) {
+            familyIndex.detach();
+            familyIndex = null;
+        }
+    }
+
+    private FamilyIndex getFamilyIndex() {
+        if (familyIndex == null) {
+            familyIndex = FamilyIndex.attach(familyRegister);
+        }
+        return familyIndex;
+    }
+
+    private static Person createPerson(Family family, FamilyMember familyMember) {
+        EStructuralFeature role = familyMember.eContainmentFeature();
+        Person person;
+        if (role == FamiliesPackage.Literals.FAMILY__FATHER || role == FamiliesPackage.Literals.FAMILY__SONS) {
+            person = PersonsFactory.eINSTANCE.createMale();
+        } else {
+            person = PersonsFactory.eINSTANCE.createFemale();
+        }
+        person.setName(PersonNames.compose(family.getName(), familyMember.getName()));
+        return person;
+    }
+
+    // The family is passed in, since a member that moved is already contained by its new family
+    private void evict(FamilyMember familyMember, Family family) {
+        if (persons.remove(familyMember) != null) {
+            released(familyMember, family);
+        }
+    }
+
+    private void evictMembers(Family family) {
+        for (FamilyMember familyMember : IncrementalModelTransformer.getMembers(family)) {
+            evict(familyMember, family);
+        }
+    }
+
+    private void evictValue(Object value, Family family) {
+        if (value instanceof FamilyMember familyMember) {
+            evict(familyMember, family);
+        } else if (value instanceof List<?> values) {
+            for (Object element : values) {
+                evictValue(element, family);
+            }
+        }
+    }
+
+    private void released(FamilyMember familyMember, Family family) {
+        familyMember.eAdapters().remove(invalidator);
+        if (family != null && cachedFamilies.merge(family, -1, Integer::sum) == 0) {
+            cachedFamilies.remove(family);
+            family.eAdapters().remove(invalidator);
+        }
+    }
+
+    // Adapts the register, cached members and their families
+    private final AdapterImpl invalidator = new AdapterImpl() {
+        @Override
+        public void notifyChanged(Notification notification) {
+            if (notification.isTouch()) {
+                return;
+            }
+            synchronized (LazyPersonsView.this) {
+                Object notifier = notification.getNotifier();
+                Object feature = notification.getFeature();
+                if (notifier instanceof FamilyMember familyMember) {
+                    evict(familyMember, (Family) familyMember.eContainer());
+                } else if (notifier instanceof Family family) {
+                    if (feature == FamiliesPackage.Literals.FAMILY__NAME) {
+                        evictMembers(family);
+                    } else {
+                        // Members that left a role (a move only has the old position); added
+                        // members cannot be cached under this family
+                        evictValue(notification.getOldValue(), family);
+                    }
+                } else if (feature == FamiliesPackage.Literals.FAMILY_REGISTER__FAMILIES) {
+                    Object oldValue = notification.getOldValue();
+                    if (oldValue instanceof Family family) {
+                        evictMembers(family);
+                    } else if (oldValue instanceof List<?> families) {
+                        for (Object family : families) {
+                            evictMembers((Family) family);
+                        }
+                    }
+                }
+            }
+        }
+    };
+}
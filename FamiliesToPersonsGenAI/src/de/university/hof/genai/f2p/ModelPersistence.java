@@ -0,0 +1,122 @@
+package de.university.hof.genai.f2p;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceFactoryImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMLParserPool;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMLParserPoolImpl;
+
+import Families.FamiliesPackage;
+import Persons.PersonsPackage;
+
+// Load and save options for the Families and Persons models. XMI is parsed with pooled parsers,
+// a cached name-to-feature map, deferred IDREF resolution and without the deprecated SAX methods,
+// and saved through a file buffer with a cached lookup table. BINARY uses EMF's binary resource
+// format, which is much smaller and faster to read; both formats can additionally be zipped.
+//
+// The caches are per instance and not synchronized, so use one instance per thread.
+public class ModelPersistence {
+
+	public enum Format {
+		XMI, ZIPPED_XMI, BINARY, ZIPPED_BINARY;
+
+		public boolean isBinary() {
+			return this == BINARY || this == ZIPPED_BINARY;
+		}
+
+		public boolean isZipped() {
+			return this == ZIPPED_XMI || this == ZIPPED_BINARY;
+		}
+
+		// Without the dot; zipped files get a .zip on top
+		public String getFileExtension() {
+			String extension = isBinary() ? "bin" : "xmi";
+			return isZipped() ? extension + ".zip" : extension;
+		}
+	}
+
+	// Parsers are expensive to create and the pool is thread-safe, so it is shared
+	private static final XMLParserPool PARSER_POOL = new XMLParserPoolImpl();
+
+	private final Format format;
+	private final Map<Object, Object> loadOptions = new HashMap<>();
+	private final Map<Object, Object> saveOptions = new HashMap<>();
+
+	public ModelPersistence(Format format) {
+		this.format = format;
+
+		loadOptions.put(XMLResource.OPTION_USE_PARSER_POOL, PARSER_POOL);
+		loadOptions.put(XMLResource.OPTION_USE_XML_NAME_TO_FEATURE_MAP, new HashMap<>());
+		loadOptions.put(XMLResource.OPTION_DEFER_IDREF_RESOLUTION, Boolean.TRUE);
+		loadOptions.put(XMLResource.OPTION_DEFER_ATTACHMENT, Boolean.TRUE);
+		loadOptions.put(XMLResource.OPTION_USE_DEPRECATED_METHODS, Boolean.FALSE);
+
+		saveOptions.put(XMLResource.OPTION_USE_CACHED_LOOKUP_TABLE, new ArrayList<>());
+		saveOptions.put(XMLResource.OPTION_CONFIGURATION_CACHE, Boolean.TRUE);
+		saveOptions.put(XMLResource.OPTION_USE_FILE_BUFFER, Boolean.TRUE);
+
+		if (format.isBinary()) {
+			// Also makes XMI resources, such as those of an existing resource set, read and write binary
+			loadOptions.put(XMLResource.OPTION_BINARY, Boolean.TRUE);
+			saveOptions.put(XMLResource.OPTION_BINARY, Boolean.TRUE);
+			saveOptions.put(BinaryResourceImpl.OPTION_VERSION, BinaryResourceImpl.BinaryIO.Version.VERSION_1_1);
+		}
+		if (format.isZipped()) {
+			loadOptions.put(Resource.OPTION_ZIP, Boolean.TRUE);
+			saveOptions.put(Resource.OPTION_ZIP, Boolean.TRUE);
+		}
+	}
+
+	public Format getFormat() {
+		return format;
+	}
+
+	public Map<Object, Object> getLoadOptions() {
+		return loadOptions;
+	}
+
+	public Map<Object, Object> getSaveOptions() {
+		return saveOptions;
+	}
+
+    // A resource set that creates resources of this format for any file extension and loads them
+    // with these options
+    public ResourceSet createResourceSet() {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        Resource.Factory factory;
+        if (format.isBinary()) {
+            factory = new ResourceFactoryImpl() {
+                @Override
+                public Resource createResource(URI uri) {
+                    return new BinaryResourceImpl(uri);
+                }
+            };
+        } else {
+            factory = new XMIResourceFactoryImpl();
+        }
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put(Resource.Factory.Registry.DEFAULT_EXTENSION, factory);
+        resourceSet.getPackageRegistry().put(FamiliesPackage.eNS_URI, FamiliesPackage.eINSTANCE);
+        resourceSet.getPackageRegistry().put(PersonsPackage.eNS_URI, PersonsPackage.eINSTANCE);
+        resourceSet.getLoadOptions().putAll(loadOptions);
+        return resourceSet;
+    }
+
+    public Resource load(ResourceSet resourceSet, String filePath) {
+        return resourceSet.getResource(URI.createFileURI(filePath), true);
+    }
+
+    public void save(Resource resource, String filePath) throws IOException {
+        resource.setURI(URI.createFileURI(filePath));
+        resource.save(saveOptions);
+    }
+}
@@ -0,0 +1,336 @@
+package de.university.hof.genai.f2p;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Male;
+import Persons.Person;
+import Persons.PersonRegister;
+import de.university.hof.genai.f2p.TransformationMetrics.Operation;
+
+// Brings the synchronized models of an IncrementalModelTransformer up to date with a Families or
+// Persons file that was edited elsewhere. Instead of transforming everything again, the reloaded
+// register is compared with the live one and only the differences are applied to the live model,
+// where the transformer's listener propagates them like any other edit. The work done on the EMF
+// models thus follows the size of the change.
+//
+// Common runs of families at the start and end of the registers are skipped after comparing their
+// names. The families in between are hashed over their name and member names and paired by that
+// hash first (confirmed by comparing the names), which finds unchanged families that only moved.
+// Then they are paired by name: a family with the same name but other members is patched role by
+// role (sons and daughters by position). The rest are paired by a hash over the member names
+// alone, which finds renamed families; they only take over the new name, so their persons keep
+// their identity. Families without a counterpart are removed, or inserted at their position in
+// the reloaded register. Persons are compared as a multiset of gender and name; a person with a
+// counterpart keeps its identity and only takes over the birthday. Added elements are moved over
+// from the reloaded register, which is left incomplete.
+public class ModelResync {
+
+	private final IncrementalModelTransformer transformer;
+	private final Resource familiesResource;
+	private final Resource personsResource;
+	private ModelPersistence persistence = new ModelPersistence(ModelPersistence.Format.XMI);
+	private TransformationMetrics metrics = TransformationMetrics.NOOP;
+
+	public ModelResync(IncrementalModelTransformer transformer, Resource familiesResource, Resource personsResource) {
+		this.transformer = transformer;
+		this.familiesResource = familiesResource;
+		this.personsResource = personsResource;
+	}
+
+    // Format and options used to reload the files
+    public void setPersistence(ModelPersistence persistence) {
+        this.persistence = persistence;
+    }
+
+    public void setMetrics(TransformationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Returns the number of edits applied to the live model
+    public int resyncFamilies(String familiesPath) {
+        ResourceSet resourceSet = persistence.createResourceSet();
+        Resource loaded = persistence.load(resourceSet, familiesPath);
+        return resyncFamilies((FamilyRegister) loaded.getContents().get(0));
+    }
+
+    public int resyncPersons(String personsPath) {
+        ResourceSet resourceSet = persistence.createResourceSet();
+        Resource loaded = persistence.load(resourceSet, personsPath);
+        return resyncPersons((PersonRegister) loaded.getContents().get(0));
+    }
+
+    public int resyncFamilies(FamilyRegister loadedRegister) {
+        long start = System.nanoTime();
+        FamilyRegister liveRegister = (FamilyRegister) familiesResource.getContents().get(0);
+        int[] edits = new int[1];
+        transformer.modify(() -> edits[0] = diffFamilies(liveRegister.getFamilies(), loadedRegister.getFamilies()));
+        metrics.record(Operation.RESYNC, System.nanoTime() - start);
+        return edits[0];
+    }
+
+    public int resyncPersons(PersonRegister loadedRegister) {
+        long start = System.nanoTime();
+        PersonRegister liveRegister = (PersonRegister) personsResource.getContents().get(0);
+        int[] edits = new int[1];
+        transformer.modify(() -> edits[0] = diffPersons(liveRegister.getPersons(), loadedRegister.getPersons()));
+        metrics.record(Operation.RESYNC, System.nanoTime() - start);
+        return edits[0];
+    }
+
+    private int diffFamilies(EList<Family> live, EList<Family> loaded) {
+        int first = 0;
+        while (first < live.size() && first < loaded.size() && sameFamily(live.get(first), loaded.get(first))) {
+            first++;
+        }
+        int liveEnd = live.size();
+        int loadedEnd = loaded.size();
+        while (liveEnd > first && loadedEnd > first && sameFamily(live.get(liveEnd - 1), loaded.get(loadedEnd - 1))) {
+            liveEnd--;
+            loadedEnd--;
+        }
+
+        // Unpaired live families of the changed range, by content hash, by name and by member hash
+        Map<Long, ArrayDeque<Integer>> byHash = new HashMap<>();
+        Map<String, ArrayDeque<Integer>> byName = new HashMap<>();
+        Map<Long, ArrayDeque<Integer>> byMembers = new HashMap<>();
+        for (int i = first; i < liveEnd; i++) {
+            byHash.computeIfAbsent(hash(live.get(i)), hash -> new ArrayDeque<>()).add(i);
+            byName.computeIfAbsent(String.valueOf(live.get(i).getName()), name -> new ArrayDeque<>()).add(i);
+            byMembers.computeIfAbsent(membersHash(live.get(i)), hash -> new ArrayDeque<>()).add(i);
+        }
+        Set<Integer> paired = new HashSet<>();
+        List<Integer> changed = new ArrayList<>();
+        for (int j = first; j < loadedEnd; j++) {
+            long hash = hash(loaded.get(j));
+            Integer match = poll(byHash.get(hash), paired);
+            if (match != null && !sameFamily(live.get(match), loaded.get(j))) {
+                // A hash collision; the family stays available for pairing by name
+                paired.remove(match);
+                byHash.get(hash).addFirst(match);
+                match = null;
+            }
+            if (match == null) {
+                changed.add(j);
+            }
+        }
+        int edits = 0;
+        List<Integer> renamed = new ArrayList<>();
+        for (int j : changed) {
+            Family family = loaded.get(j);
+            Integer match = poll(byName.get(String.valueOf(family.getName())), paired);
+            if (match == null) {
+                renamed.add(j);
+            } else {
+                edits += patchMembers(live.get(match), family);
+            }
+        }
+        // Loaded indices, ascending; the families are looked up before any of them is moved over
+        List<Integer> addedAt = new ArrayList<>();
+        List<Family> added = new ArrayList<>();
+        for (int j : renamed) {
+            Family family = loaded.get(j);
+            long hash = membersHash(family);
+            Integer match = poll(byMembers.get(hash), paired);
+            if (match != null && !sameMembers(live.get(match), family)) {
+                paired.remove(match);
+                byMembers.get(hash).addFirst(match);
+                match = null;
+            }
+            if (match == null) {
+                addedAt.add(j);
+                added.add(family);
+            } else {
+                live.get(match).setName(family.getName());
+                edits++;
+            }
+        }
+
+        // Removed from the back, so the remaining indices stay valid
+        for (int i = liveEnd - 1; i >= first; i--) {
+            if (!paired.contains(i)) {
+                live.remove(i);
+                edits++;
+            }
+        }
+        // In ascending order, so the families before each insertion point are already in place
+        for (int k = 0; k < added.size(); k++) {
+            live.add(Math.min(addedAt.get(k), live.size()), added.get(k));
+            edits++;
+        }
+        return edits;
+    }
+
+    // Takes the first index not yet paired off the queue
+    private static Integer poll(ArrayDeque<Integer> candidates, Set<Integer> paired) {
+        if (candidates == null) {
+            return null;
+        }
+        for (Integer index = candidates.poll(); index != null; index = candidates.poll()) {
+            if (paired.add(index)) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    private static boolean sameFamily(Family live, Family loaded) {
+        return Objects.equals(live.getName(), loaded.getName()) && sameMembers(live, loaded);
+    }
+
+    private static boolean sameMembers(Family live, Family loaded) {
+        return sameName(live.getFather(), loaded.getFather()) && sameName(live.getMother(), loaded.getMother())
+                && sameNames(live.getSons(), loaded.getSons()) && sameNames(live.getDaughters(), loaded.getDaughters());
+    }
+
+    private static boolean sameName(FamilyMember live, FamilyMember loaded) {
+        return live == null ? loaded == null : loaded != null && Objects.equals(live.getName(), loaded.getName());
+    }
+
+    private static boolean sameNames(List<FamilyMember> live, List<FamilyMember> loaded) {
+        if (live.size() != loaded.size()) {
+            return false;
+        }
+        for (int i = 0; i < live.size(); i++) {
+            if (!Objects.equals(live.get(i).getName(), loaded.get(i).getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int patchMembers(Family live, Family loaded) {
+        int edits = 0;
+        if (!sameName(live.getFather(), loaded.getFather())) {
+            if (live.getFather() != null && loaded.getFather() != null) {
+                transformer.rename(live.getFather(), loaded.getFather().getName());
+            } else {
+                live.setFather(loaded.getFather());
+            }
+            edits++;
+        }
+        if (!sameName(live.getMother(), loaded.getMother())) {
+            if (live.getMother() != null && loaded.getMother() != null) {
+                transformer.rename(live.getMother(), loaded.getMother().getName());
+            } else {
+                live.setMother(loaded.getMother());
+            }
+            edits++;
+        }
+        return edits + patchMembers(live.getSons(), loaded.getSons()) + patchMembers(live.getDaughters(), loaded.getDaughters());
+    }
+
+    private int patchMembers(EList<FamilyMember> live, EList<FamilyMember> loaded) {
+        int edits = 0;
+        int common = Math.min(live.size(), loaded.size());
+        for (int i = 0; i < common; i++) {
+            if (!Objects.equals(live.get(i).getName(), loaded.get(i).getName())) {
+                transformer.rename(live.get(i), loaded.get(i).getName());
+                edits++;
+            }
+        }
+        while (live.size() > common) {
+            live.remove(live.size() - 1);
+            edits++;
+        }
+        // Moving a member out of the reloaded list shortens it
+        while (loaded.size() > common) {
+            live.add(loaded.get(common));
+            edits++;
+        }
+        return edits;
+    }
+
+    private static long hash(Family family) {
+        return mix(membersHash(family), family.getName());
+    }
+
+    private static long membersHash(Family family) {
+        long hash = mix(0, family.getFather() == null ? null : family.getFather().getName());
+        hash = mix(hash, family.getMother() == null ? null : family.getMother().getName());
+        for (FamilyMember son : family.getSons()) {
+            hash = mix(hash, son.getName());
+        }
+        // Separates the sons from the daughters
+        hash = mix(hash, null);
+        for (FamilyMember daughter : family.getDaughters()) {
+            hash = mix(hash, daughter.getName());
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, String name) {
+        long value = name == null ? 0x9E3779B97F4A7C15L : ((long) name.hashCode() << 32) ^ name.length();
+        hash = (hash ^ value) * 0xBF58476D1CE4E5B9L;
+        return hash ^ (hash >>> 31);
+    }
+
+    private int diffPersons(EList<Person> live, EList<Person> loaded) {
+        int first = 0;
+        while (first < live.size() && first < loaded.size() && samePerson(live.get(first), loaded.get(first))) {
+            first++;
+        }
+        int liveEnd = live.size();
+        int loadedEnd = loaded.size();
+        while (liveEnd > first && loadedEnd > first && samePerson(live.get(liveEnd - 1), loaded.get(loadedEnd - 1))) {
+            liveEnd--;
+            loadedEnd--;
+        }
+
+        // Unpaired live persons of the changed range by gender and name, in register order
+        Map<String, ArrayDeque<Integer>> byKey = new HashMap<>();
+        for (int i = first; i < liveEnd; i++) {
+            byKey.computeIfAbsent(key(live.get(i)), key -> new ArrayDeque<>()).add(i);
+        }
+        Set<Integer> paired = new HashSet<>();
+        // Loaded indices, ascending; the persons are looked up before any of them is moved over
+        List<Integer> addedAt = new ArrayList<>();
+        List<Person> added = new ArrayList<>();
+        int edits = 0;
+        for (int j = first; j < loadedEnd; j++) {
+            Person person = loaded.get(j);
+            Integer match = poll(byKey.get(key(person)), paired);
+            if (match == null) {
+                addedAt.add(j);
+                added.add(person);
+            } else if (!Objects.equals(live.get(match).getBirthday(), person.getBirthday())) {
+                live.get(match).setBirthday(person.getBirthday());
+                edits++;
+            }
+        }
+        for (int i = liveEnd - 1; i >= first; i--) {
+            if (!paired.contains(i)) {
+                live.remove(i);
+                edits++;
+            }
+        }
+        // In ascending order, so the persons before each insertion point are already in place
+        for (int k = 0; k < added.size(); k++) {
+            live.add(Math.min(addedAt.get(k), live.size()), added.get(k));
+            edits++;
+        }
+        return edits;
+    }
+
+    private static boolean samePerson(Person live, Person loaded) {
+        return live.eClass() == loaded.eClass() && Objects.equals(live.getName(), loaded.getName())
+                && Objects.equals(live.getBirthday(), loaded.getBirthday());
+    }
+
+    private static String key(Person person) {
+        return (person instanceof Male ? "M" : "F") + person.getName();
+    }
+}
@@ -1,13 +1,22 @@
 package de.university.hof.genai.f2p;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
-import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.util.BasicEList;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.impl.ENotificationImpl;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
-import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
-import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.emf.ecore.util.InternalEList;
 
 import Families.FamiliesFactory;
 import Families.FamiliesPackage;
@@ -20,10 +29,18 @@ import Persons.Person;
 import Persons.PersonRegister;
 import Persons.PersonsFactory;
 import Persons.PersonsPackage;
+import de.university.hof.genai.f2p.TransformationMetrics.Counter;
+import de.university.hof.genai.f2p.TransformationMetrics.Operation;
 
 public class ModelTransformer {
 	private Resource familiesResource;
 	private Resource personsResource;
+	private boolean bulkMode = false;
+	private List<Family> pendingFamilies;
+	private Map<Family, List<FamilyMember>> pendingSons;
+	private Map<Family, List<FamilyMember>> pendingDaughters;
+	private ModelPersistence persistence = new ModelPersistence(ModelPersistence.Format.XMI);
+	private TransformationMetrics metrics = TransformationMetrics.NOOP;
 	
 	public ModelTransformer(Resource source, Resource target) {
 		familiesResource = source;
@@ -32,15 +49,14 @@ public class ModelTransformer {
 
     public static void main(String[] args) {
         // Load Families and Persons models
-        ResourceSet resourceSet = new ResourceSetImpl();
-        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("ecore", new XMIResourceFactoryImpl());
-        resourceSet.getPackageRegistry().put(FamiliesPackage.eNS_URI, FamiliesPackage.eINSTANCE);
-        resourceSet.getPackageRegistry().put(PersonsPackage.eNS_URI, PersonsPackage.eINSTANCE);
+        ModelPersistence persistence = new ModelPersistence(ModelPersistence.Format.XMI);
+        ResourceSet resourceSet = persistence.createResourceSet();
 
-        Resource familiesResource = resourceSet.getResource(URI.createFileURI("path/to/Families.ecore"), true);
-        Resource personsResource = resourceSet.getResource(URI.createFileURI("path/to/Persons.ecore"), true);
+        Resource familiesResource = persistence.load(resourceSet, "path/to/Families.ecore");
+        Resource personsResource = persistence.load(resourceSet, "path/to/Persons.ecore");
         
         ModelTransformer t = new ModelTransformer(familiesResource, personsResource);
+        t.setPersistence(persistence);
 
         FamilyRegister familyRegister = (FamilyRegister) familiesResource.getContents().get(0);
         PersonRegister personRegister = (PersonRegister) personsResource.getContents().get(0);
@@ -52,92 +68,239 @@ public class ModelTransformer {
         t.saveModel(personsResource, "path/to/TransformedPersons.xmi");
     }
 
+    // Format and options used by saveModel
+    public void setPersistence(ModelPersistence persistence) {
+        this.persistence = persistence;
+    }
+
+    public void setMetrics(TransformationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setBulkMode(boolean bulkMode) {
+        // In bulk mode new elements are collected first and added to their lists in one go with
+        // notification delivery turned off; adapters receive one ADD_MANY per list afterwards
+        this.bulkMode = bulkMode;
+    }
+
     public void transformFamiliesToPersons(FamilyRegister familyRegister, PersonRegister personRegister) {
-        for (Family family : familyRegister.getFamilies()) {
-            // Transform father
-            if (family.getFather() != null) {
-                Male father = PersonsFactory.eINSTANCE.createMale();
-                father.setName(family.getName() + ", " + family.getFather().getName());
-                personRegister.getPersons().add(father);
-            }
-            // Transform mother
-            if (family.getMother() != null) {
-                Female mother = PersonsFactory.eINSTANCE.createFemale();
-                mother.setName(family.getName() + ", " + family.getMother().getName());
-                personRegister.getPersons().add(mother);
+        long start = System.nanoTime();
+        int personCount = personRegister.getPersons().size();
+        if (bulkMode) {
+            List<Person> newPersons = new ArrayList<>(countMembers(familyRegister));
+            for (Family family : familyRegister.getFamilies()) {
+                transformFamilyToPersons(family, newPersons);
             }
-            // Transform sons
-            for (FamilyMember son : family.getSons()) {
-                Male maleSon = PersonsFactory.eINSTANCE.createMale();
-                maleSon.setName(family.getName() + ", " + son.getName());
-                personRegister.getPersons().add(maleSon);
+            addAllWithoutNotification(personRegister, PersonsPackage.Literals.PERSON_REGISTER__PERSONS, personRegister.getPersons(), newPersons);
+        } else {
+            for (Family family : familyRegister.getFamilies()) {
+                transformFamilyToPersons(family, personRegister.getPersons());
             }
-            // Transform daughters
-            for (FamilyMember daughter : family.getDaughters()) {
-                Female femaleDaughter = PersonsFactory.eINSTANCE.createFemale();
-                femaleDaughter.setName(family.getName() + ", " + daughter.getName());
-                personRegister.getPersons().add(femaleDaughter);
+        }
+        metrics.increment(Counter.PERSONS_CREATED, personRegister.getPersons().size() - personCount);
+        metrics.record(Operation.FAMILIES_TO_PERSONS, System.nanoTime() - start);
+    }
+
+    public void transformFamiliesToPersons(FamilyRegister familyRegister, PersonRegister personRegister, int parallelism) {
+        // Persons are created per chunk of families in parallel; only the insertion is sequential
+        long start = System.nanoTime();
+        List<List<Person>> chunks = FamilyChunks.map(familyRegister.getFamilies(), parallelism, families -> {
+            List<Person> persons = new ArrayList<>();
+            for (Family family : families) {
+                transformFamilyToPersons(family, persons);
             }
+            return persons;
+        });
+        int count = 0;
+        for (List<Person> chunk : chunks) {
+            count += chunk.size();
+        }
+        List<Person> newPersons = new ArrayList<>(count);
+        for (List<Person> chunk : chunks) {
+            newPersons.addAll(chunk);
+        }
+        if (bulkMode) {
+            addAllWithoutNotification(personRegister, PersonsPackage.Literals.PERSON_REGISTER__PERSONS, personRegister.getPersons(), newPersons);
+        } else {
+            personRegister.getPersons().addAll(newPersons);
+        }
+        metrics.increment(Counter.PERSONS_CREATED, newPersons.size());
+        metrics.record(Operation.FAMILIES_TO_PERSONS, System.nanoTime() - start);
+    }
+
+    public void transformFamilyToPersons(Family family, List<? super Person> persons) {
+        // Transform father
+        if (family.getFather() != null) {
+            Male father = PersonsFactory.eINSTANCE.createMale();
+            father.setName(PersonNames.compose(family.getName(), family.getFather().getName()));
+            persons.add(father);
+        }
+        // Transform mother
+        if (family.getMother() != null) {
+            Female mother = PersonsFactory.eINSTANCE.createFemale();
+            mother.setName(PersonNames.compose(family.getName(), family.getMother().getName()));
+            persons.add(mother);
+        }
+        // Transform sons
+        for (FamilyMember son : family.getSons()) {
+            Male maleSon = PersonsFactory.eINSTANCE.createMale();
+            maleSon.setName(PersonNames.compose(family.getName(), son.getName()));
+            persons.add(maleSon);
+        }
+        // Transform daughters
+        for (FamilyMember daughter : family.getDaughters()) {
+            Female femaleDaughter = PersonsFactory.eINSTANCE.createFemale();
+            femaleDaughter.setName(PersonNames.compose(family.getName(), daughter.getName()));
+            persons.add(femaleDaughter);
         }
     }
 
     public void transformPersonsToFamilies(PersonRegister personRegister, FamilyRegister familyRegister, boolean addToExistingFamilies, boolean preferParentRole) {
-        for (Person person : personRegister.getPersons()) {
-            String[] nameParts = person.getName().split(", ");
-            if (nameParts.length != 2) {
-                continue; // Skip malformed names
-            }
-            String familyName = nameParts[0];
-            String personName = nameParts[1];
+        long start = System.nanoTime();
+        int malformedNames = 0;
+        FamilyIndex familyIndex = new FamilyIndex(familyRegister);
+        if (bulkMode) {
+            pendingFamilies = new ArrayList<>();
+            pendingSons = new LinkedHashMap<>();
+            pendingDaughters = new LinkedHashMap<>();
+        }
+        // Bulk runs also share the family name strings between the persons of a family
+        PersonNames.Parser names = new PersonNames.Parser(bulkMode);
+        try {
+            for (Person person : personRegister.getPersons()) {
+                if (!names.parse(person.getName())) {
+                    malformedNames++;
+                    continue; // Skip malformed names
+                }
+                String familyName = names.getFamilyName();
+                String personName = names.getMemberName();
 
-            Family family = findOrCreateFamily(familyRegister, familyName, addToExistingFamilies);
+                Family family = findOrCreateFamily(familyIndex, familyRegister, familyName, addToExistingFamilies);
 
-            FamilyMember familyMember = FamiliesFactory.eINSTANCE.createFamilyMember();
-            familyMember.setName(personName);
+                FamilyMember familyMember = FamiliesFactory.eINSTANCE.createFamilyMember();
+                familyMember.setName(personName);
 
-            if (preferParentRole) {
-                if (person instanceof Male) {
-                    if (family.getFather() == null) {
-                        family.setFather(familyMember);
-                    } else {
-                        family.getSons().add(familyMember);
+                if (preferParentRole) {
+                    if (person instanceof Male) {
+                        if (family.getFather() == null) {
+                            family.setFather(familyMember);
+                        } else {
+                            sonsOf(family).add(familyMember);
+                        }
+                    } else if (person instanceof Female) {
+                        if (family.getMother() == null) {
+                            family.setMother(familyMember);
+                        } else {
+                            daughtersOf(family).add(familyMember);
+                        }
                     }
-                } else if (person instanceof Female) {
-                    if (family.getMother() == null) {
-                        family.setMother(familyMember);
-                    } else {
-                        family.getDaughters().add(familyMember);
+                } else {
+                    if (person instanceof Male) {
+                        sonsOf(family).add(familyMember);
+                    } else if (person instanceof Female) {
+                        daughtersOf(family).add(familyMember);
                     }
                 }
-            } else {
-                if (person instanceof Male) {
-                    family.getSons().add(familyMember);
-                } else if (person instanceof Female) {
-                    family.getDaughters().add(familyMember);
+            }
+            if (bulkMode) {
+                addAllWithoutNotification(familyRegister, FamiliesPackage.Literals.FAMILY_REGISTER__FAMILIES, familyRegister.getFamilies(), pendingFamilies);
+                for (Map.Entry<Family, List<FamilyMember>> sons : pendingSons.entrySet()) {
+                    addAllWithoutNotification(sons.getKey(), FamiliesPackage.Literals.FAMILY__SONS, sons.getKey().getSons(), sons.getValue());
+                }
+                for (Map.Entry<Family, List<FamilyMember>> daughters : pendingDaughters.entrySet()) {
+                    addAllWithoutNotification(daughters.getKey(), FamiliesPackage.Literals.FAMILY__DAUGHTERS, daughters.getKey().getDaughters(), daughters.getValue());
                 }
             }
+            metrics.increment(Counter.MALFORMED_NAMES_SKIPPED, malformedNames);
+            metrics.increment(Counter.MEMBERS_CREATED, personRegister.getPersons().size() - malformedNames);
+            metrics.record(Operation.PERSONS_TO_FAMILIES, System.nanoTime() - start);
+        } finally {
+            pendingFamilies = null;
+            pendingSons = null;
+            pendingDaughters = null;
         }
     }
 
-    private Family findOrCreateFamily(FamilyRegister familyRegister, String familyName, boolean addToExistingFamilies) {
+    private Family findOrCreateFamily(FamilyIndex familyIndex, FamilyRegister familyRegister, String familyName, boolean addToExistingFamilies) {
         if (addToExistingFamilies) {
-            for (Family existingFamily : familyRegister.getFamilies()) {
-                if (existingFamily.getName().equals(familyName)) {
-                    return existingFamily;
-                }
+            Family existingFamily = familyIndex.get(familyName);
+            if (existingFamily != null) {
+                return existingFamily;
             }
         }
         Family newFamily = FamiliesFactory.eINSTANCE.createFamily();
         newFamily.setName(familyName);
-        familyRegister.getFamilies().add(newFamily);
+        if (pendingFamilies != null) {
+            pendingFamilies.add(newFamily);
+        } else {
+            familyRegister.getFamilies().add(newFamily);
+        }
+        familyIndex.add(newFamily);
+        metrics.increment(Counter.FAMILIES_CREATED);
         return newFamily;
     }
 
+    private List<FamilyMember> sonsOf(Family family) {
+        if (pendingSons != null) {
+            return pendingSons.computeIfAbsent(family, f -> new ArrayList<>());
+        }
+        return family.getSons();
+    }
+
+    private List<FamilyMember> daughtersOf(Family family) {
+        if (pendingDaughters != null) {
+            return pendingDaughters.computeIfAbsent(family, f -> new ArrayList<>());
+        }
+        return family.getDaughters();
+    }
+
+    private static int countMembers(FamilyRegister familyRegister) {
+        int count = 0;
+        for (Family family : familyRegister.getFamilies()) {
+            if (family.getFather() != null) {
+                count++;
+            }
+            if (family.getMother() != null) {
+                count++;
+            }
+            count += family.getSons().size() + family.getDaughters().size();
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void addAllWithoutNotification(EObject owner, EStructuralFeature feature, EList<T> list, List<? extends T> elements) {
+        if (elements.isEmpty()) {
+            return;
+        }
+        int position = list.size();
+        if (list instanceof BasicEList) {
+            ((BasicEList<T>) list).grow(position + elements.size());
+        }
+        boolean deliver = owner.eDeliver();
+        owner.eSetDeliver(false);
+        try {
+            // The elements are newly created, so the uniqueness check of add/addAll can be skipped
+            ((InternalEList<T>) list).addAllUnique(elements);
+        } finally {
+            owner.eSetDeliver(deliver);
+        }
+        InternalEObject notifier = (InternalEObject) owner;
+        if (notifier.eNotificationRequired()) {
+            if (elements.size() == 1) {
+                notifier.eNotify(new ENotificationImpl(notifier, Notification.ADD, feature, null, elements.get(0), position));
+            } else {
+                notifier.eNotify(new ENotificationImpl(notifier, Notification.ADD_MANY, feature, null, new ArrayList<>(elements), position));
+            }
+        }
+    }
+
 
     public void saveModel(Resource resource, String filePath) {
+        long start = System.nanoTime();
         try {
-            resource.setURI(URI.createFileURI(filePath));
-            resource.save(null);
+            persistence.save(resource, filePath);
+            metrics.record(Operation.SAVE_MODEL, System.nanoTime() - start);
         } catch (IOException e) {
             e.printStackTrace();
         }
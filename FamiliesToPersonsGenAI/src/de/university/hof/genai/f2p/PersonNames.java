@@ -0,0 +1,125 @@
+package de.university.hof.genai.f2p;
+
+// Person names are "<family name>, <member name>". Composition is left to string concatenation,
+// which allocates nothing but the result; parsing scans for the separator instead of going
+// through String.split (a regex for a two-character separator) and its array.
+public final class PersonNames {
+
+	public static final String SEPARATOR = ", ";
+
+	private PersonNames() {
+	}
+
+    public static String compose(String familyName, String memberName) {
+        return familyName + SEPARATOR + memberName;
+    }
+
+    // Same as compose(familyName, memberName).equals(personName), without building the name
+    public static boolean matches(String personName, String familyName, String memberName) {
+        if (personName == null) {
+            return false;
+        }
+        familyName = String.valueOf(familyName);
+        memberName = String.valueOf(memberName);
+        int familyLength = familyName.length();
+        return personName.length() == familyLength + SEPARATOR.length() + memberName.length()
+                && personName.startsWith(familyName)
+                && personName.startsWith(SEPARATOR, familyLength)
+                && personName.endsWith(memberName);
+    }
+
+	// Splits person names into family and member name. A name is accepted exactly when
+	// name.split(", ") would have returned two parts, so names are treated as before: the
+	// family name may be empty, and trailing separators are ignored ("Doe, John, , " is valid).
+	// With deduplication, family names are taken from a table of the names seen so far instead
+	// of being cut out of every person name again. A parser is not thread-safe.
+	public static final class Parser {
+		private final boolean deduplicateFamilyNames;
+		private String name;
+		private int separator;
+		private int memberEnd;
+		private String[] familyNames = new String[64];
+		private int familyNameCount;
+
+		public Parser(boolean deduplicateFamilyNames) {
+			this.deduplicateFamilyNames = deduplicateFamilyNames;
+		}
+
+        public boolean parse(String personName) {
+            name = null;
+            if (personName == null) {
+                return false;
+            }
+            int first = personName.indexOf(SEPARATOR);
+            if (first < 0) {
+                return false;
+            }
+            int second = personName.indexOf(SEPARATOR, first + SEPARATOR.length());
+            int end = second < 0 ? personName.length() : second;
+            if (end == first + SEPARATOR.length()) {
+                // An empty member name is either dropped as trailing or followed by a third part
+                return false;
+            }
+            if (second >= 0) {
+                // Only empty parts may follow, which split drops
+                for (int i = second; i < personName.length(); i += SEPARATOR.length()) {
+                    if (!personName.startsWith(SEPARATOR, i)) {
+                        return false;
+                    }
+                }
+            }
+            name = personName;
+            separator = first;
+            memberEnd = end;
+            return true;
+        }
+
+        public String getFamilyName() {
+            if (!deduplicateFamilyNames) {
+                return name.substring(0, separator);
+            }
+            int hash = 0;
+            for (int i = 0; i < separator; i++) {
+                hash = 31 * hash + name.charAt(i);
+            }
+            int mask = familyNames.length - 1;
+            int slot = mix(hash) & mask;
+            for (String candidate = familyNames[slot]; candidate != null; candidate = familyNames[slot]) {
+                if (candidate.length() == separator && name.startsWith(candidate)) {
+                    return candidate;
+                }
+                slot = (slot + 1) & mask;
+            }
+            String familyName = name.substring(0, separator);
+            familyNames[slot] = familyName;
+            if (++familyNameCount > familyNames.length / 2) {
+                rehash();
+            }
+            return familyName;
+        }
+
+        public String getMemberName() {
+            return name.substring(separator + SEPARATOR.length(), memberEnd);
+        }
+
+        private void rehash() {
+            String[] old = familyNames;
+            familyNames = new String[old.length * 2];
+            int mask = familyNames.length - 1;
+            for (String familyName : old) {
+                if (familyName != null) {
+                    // The hash of a substring equals the hash computed over its region
+                    int slot = mix(familyName.hashCode()) & mask;
+                    while (familyNames[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    familyNames[slot] = familyName;
+                }
+            }
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+	}
+}
@@ -0,0 +1,349 @@
+package de.university.hof.genai.f2p;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import Families.FamiliesFactory;
+import Families.Family;
+import Families.FamilyRegister;
+import Persons.Person;
+import Persons.PersonRegister;
+import Persons.PersonsFactory;
+import de.university.hof.genai.f2p.StreamingFamiliesToPersons.FamiliesReader;
+import de.university.hof.genai.f2p.StreamingFamiliesToPersons.FamiliesWriter;
+import de.university.hof.genai.f2p.StreamingFamiliesToPersons.PersonsReader;
+import de.university.hof.genai.f2p.StreamingFamiliesToPersons.PersonsWriter;
+
+// Batch transformations of registers that are split over several XMI files, with worker JVMs
+// that each handle a contiguous range of the input files, so every file is read by one worker.
+//
+// Families -> Persons transforms each family on its own, so the workers stream their files like
+// StreamingFamiliesToPersons and the merged output keeps the order of the inputs. The same holds
+// for Persons -> Families without addToExistingFamilies, where every person gets a family of its
+// own. With addToExistingFamilies, all persons of a family name have to end up in the same
+// worker: the workers first partition their files by the hash of the family name into one file
+// per shard (persons-<worker>-<shard>.xmi), then one worker per shard transforms its partitions,
+// holding its persons and families in memory. No two shards create a family of the same name,
+// and their outputs can simply be concatenated. The partitioning is skipped when the persons of
+// each family name are known to be in one input file (setInputsGroupedByFamily).
+//
+// Each transforming worker writes its own file (families-<n>.xmi or persons-<n>.xmi in the work
+// directory), which the coordinator merges in order. Workers are started with the classpath of
+// this JVM. To spread them over several machines, run one of
+//   java ShardedTransformation FAMILIES_TO_PERSONS <output> <input>...
+//   java ShardedTransformation PARTITION_PERSONS <shards> <outputPrefix> <input>...
+//   java ShardedTransformation PERSONS_TO_FAMILIES <addToExistingFamilies> <preferParentRole> <output> <input>...
+// on each and merge the output files with mergeFamilies or mergePersons.
+public class ShardedTransformation {
+
+	public enum Mode {
+		FAMILIES_TO_PERSONS, PARTITION_PERSONS, PERSONS_TO_FAMILIES
+	}
+
+	private final int shards;
+	private final Path workDirectory;
+	private String classPath = System.getProperty("java.class.path");
+	private List<String> jvmOptions = new ArrayList<>();
+	private boolean inputsGroupedByFamily = false;
+
+	public ShardedTransformation(int shards, Path workDirectory) {
+		if (shards < 1) {
+			throw new IllegalArgumentException("shards must be positive: " + shards);
+		}
+		this.shards = shards;
+		this.workDirectory = workDirectory;
+	}
+
+    // Worker entry point
+    public static void main(String[] args) {
+        Mode mode = args.length > 0 ? parseMode(args[0]) : null;
+        int arguments = mode == Mode.FAMILIES_TO_PERSONS ? 1 : mode == Mode.PARTITION_PERSONS ? 2 : 3;
+        if (mode == null || args.length <= arguments || (mode == Mode.PARTITION_PERSONS && parseShards(args[1]) < 1)) {
+            System.err.println("Usage: ShardedTransformation FAMILIES_TO_PERSONS <output> <input>...");
+            System.err.println("       ShardedTransformation PARTITION_PERSONS <shards> <outputPrefix> <input>...");
+            System.err.println("       ShardedTransformation PERSONS_TO_FAMILIES <addToExistingFamilies> <preferParentRole> <output> <input>...");
+            System.exit(2);
+        }
+        List<String> inputs = List.of(args).subList(arguments + 1, args.length);
+        try {
+            if (mode == Mode.FAMILIES_TO_PERSONS) {
+                transformFamilies(inputs, args[1]);
+            } else if (mode == Mode.PARTITION_PERSONS) {
+                partitionPersons(inputs, args[2], parseShards(args[1]));
+            } else {
+                transformPersons(inputs, args[3], Boolean.parseBoolean(args[1]), Boolean.parseBoolean(args[2]));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    // Null for anything but the name of a mode, so a typo gets the usage instead of a stack trace
+    private static Mode parseMode(String name) {
+        for (Mode mode : Mode.values()) {
+            if (mode.name().equals(name)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+
+    // Zero if not a number
+    private static int parseShards(String shards) {
+        try {
+            return Integer.parseInt(shards);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Classpath of the worker JVMs; the one of this JVM by default
+    public void setClassPath(String classPath) {
+        this.classPath = classPath;
+    }
+
+    // Additional options of the worker JVMs, such as -Xmx
+    public void setJvmOptions(List<String> jvmOptions) {
+        this.jvmOptions = new ArrayList<>(jvmOptions);
+    }
+
+    // Whether the persons of each family name are all in the same input file, as when every file
+    // holds whole families. transformPersonsToFamilies then splits the files across the workers
+    // without partitioning them by family name first.
+    public void setInputsGroupedByFamily(boolean inputsGroupedByFamily) {
+        this.inputsGroupedByFamily = inputsGroupedByFamily;
+    }
+
+    // String.hashCode is specified, so every JVM assigns a name to the same shard
+    public static int shardOf(String familyName, int shards) {
+        return Math.floorMod(String.valueOf(familyName).hashCode(), shards);
+    }
+
+    // As many workers as there are shards, but at most one per input file
+    public void transformFamiliesToPersons(List<String> familiesPaths, String personsPath) throws IOException {
+        List<String> outputs = new ArrayList<>();
+        List<List<String>> workers = new ArrayList<>();
+        for (List<String> inputs : splitInputs(familiesPaths)) {
+            String output = workDirectory.resolve("persons-" + outputs.size() + ".xmi").toString();
+            workers.add(arguments(List.of(Mode.FAMILIES_TO_PERSONS.name(), output), inputs));
+            outputs.add(output);
+        }
+        runWorkers(workers);
+        mergePersons(outputs, personsPath);
+    }
+
+    // Like ModelTransformer.transformPersonsToFamilies into an empty register: familiesPath is
+    // written anew, so families already in that file are neither kept nor added to. When the
+    // persons are partitioned by family name, the families come grouped by shard; otherwise they
+    // are in the order of the inputs.
+    public void transformPersonsToFamilies(List<String> personsPaths, String familiesPath, boolean addToExistingFamilies, boolean preferParentRole) throws IOException {
+        List<List<String>> groups = splitInputs(personsPaths);
+        if (addToExistingFamilies && !inputsGroupedByFamily) {
+            List<List<String>> partitioners = new ArrayList<>();
+            for (int worker = 0; worker < groups.size(); worker++) {
+                String prefix = workDirectory.resolve("persons-" + worker + "-").toString();
+                partitioners.add(arguments(List.of(Mode.PARTITION_PERSONS.name(), String.valueOf(shards), prefix), groups.get(worker)));
+            }
+            runWorkers(partitioners);
+            List<List<String>> partitions = new ArrayList<>();
+            for (int shard = 0; shard < shards; shard++) {
+                List<String> partition = new ArrayList<>();
+                for (int worker = 0; worker < groups.size(); worker++) {
+                    partition.add(workDirectory.resolve("persons-" + worker + "-" + shard + ".xmi").toString());
+                }
+                partitions.add(partition);
+            }
+            groups = partitions;
+        }
+        List<String> outputs = new ArrayList<>();
+        List<List<String>> workers = new ArrayList<>();
+        for (List<String> inputs : groups) {
+            String output = workDirectory.resolve("families-" + outputs.size() + ".xmi").toString();
+            workers.add(arguments(List.of(Mode.PERSONS_TO_FAMILIES.name(), String.valueOf(addToExistingFamilies), String.valueOf(preferParentRole), output), inputs));
+            outputs.add(output);
+        }
+        runWorkers(workers);
+        mergeFamilies(outputs, familiesPath);
+    }
+
+    // Contiguous ranges of the paths, as even in length as possible, one per worker
+    private List<List<String>> splitInputs(List<String> paths) {
+        int workers = Math.min(shards, paths.size());
+        List<List<String>> ranges = new ArrayList<>(workers);
+        for (int worker = 0; worker < workers; worker++) {
+            ranges.add(paths.subList(worker * paths.size() / workers, (worker + 1) * paths.size() / workers));
+        }
+        return ranges;
+    }
+
+    private static List<String> arguments(List<String> arguments, List<String> inputs) {
+        List<String> all = new ArrayList<>(arguments);
+        all.addAll(inputs);
+        return all;
+    }
+
+    private void runWorkers(List<List<String>> workerArguments) throws IOException {
+        Files.createDirectories(workDirectory);
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> workers = new ArrayList<>();
+        try {
+            for (List<String> arguments : workerArguments) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(jvmOptions);
+                command.add("-cp");
+                command.add(classPath);
+                command.add(ShardedTransformation.class.getName());
+                command.addAll(arguments);
+                workers.add(new ProcessBuilder(command).inheritIO().start());
+            }
+            for (int worker = 0; worker < workers.size(); worker++) {
+                int exitCode = workers.get(worker).waitFor();
+                if (exitCode != 0) {
+                    throw new IOException("Worker " + worker + " (" + workerArguments.get(worker).get(0) + ") failed with exit code " + exitCode);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the workers", e);
+        } finally {
+            for (Process worker : workers) {
+                worker.destroy();
+            }
+        }
+    }
+
+    public static void transformFamilies(List<String> familiesPaths, String personsPath) throws IOException {
+        ModelTransformer transformer = new ModelTransformer(null, null);
+        List<Person> persons = new ArrayList<>();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(personsPath)), 1 << 16)) {
+            PersonsWriter writer = new PersonsWriter(out);
+            for (String familiesPath : familiesPaths) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(familiesPath)), 1 << 16)) {
+                    FamiliesReader reader = new FamiliesReader(in);
+                    for (Family family = reader.next(); family != null; family = reader.next()) {
+                        persons.clear();
+                        transformer.transformFamilyToPersons(family, persons);
+                        for (Person person : persons) {
+                            writer.write(person);
+                        }
+                    }
+                    reader.close();
+                }
+            }
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // Streams the persons into <outputPrefix><shard>.xmi by the shard of their family name.
+    // Malformed names are skipped by the transformation, so they are dropped here.
+    public static void partitionPersons(List<String> personsPaths, String outputPrefix, int shards) throws IOException {
+        PersonNames.Parser names = new PersonNames.Parser(false);
+        List<OutputStream> outs = new ArrayList<>(shards);
+        try {
+            List<PersonsWriter> writers = new ArrayList<>(shards);
+            for (int shard = 0; shard < shards; shard++) {
+                outs.add(new BufferedOutputStream(Files.newOutputStream(Path.of(outputPrefix + shard + ".xmi")), 1 << 16));
+                writers.add(new PersonsWriter(outs.get(shard)));
+            }
+            for (String personsPath : personsPaths) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(personsPath)), 1 << 16)) {
+                    PersonsReader reader = new PersonsReader(in);
+                    for (Person person = reader.next(); person != null; person = reader.next()) {
+                        if (names.parse(person.getName())) {
+                            writers.get(shardOf(names.getFamilyName(), shards)).write(person);
+                        }
+                    }
+                    reader.close();
+                }
+            }
+            for (PersonsWriter writer : writers) {
+                writer.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            for (OutputStream out : outs) {
+                out.close();
+            }
+        }
+    }
+
+    public static void transformPersons(List<String> personsPaths, String familiesPath, boolean addToExistingFamilies, boolean preferParentRole) throws IOException {
+        PersonRegister personRegister = PersonsFactory.eINSTANCE.createPersonRegister();
+        try {
+            for (String personsPath : personsPaths) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(personsPath)), 1 << 16)) {
+                    PersonsReader reader = new PersonsReader(in);
+                    List<Person> persons = new ArrayList<>();
+                    for (Person person = reader.next(); person != null; person = reader.next()) {
+                        persons.add(person);
+                    }
+                    reader.close();
+                    personRegister.getPersons().addAll(persons);
+                }
+            }
+            FamilyRegister familyRegister = FamiliesFactory.eINSTANCE.createFamilyRegister();
+            ModelTransformer transformer = new ModelTransformer(null, null);
+            transformer.setBulkMode(true);
+            transformer.transformPersonsToFamilies(personRegister, familyRegister, addToExistingFamilies, preferParentRole);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(familiesPath)), 1 << 16)) {
+                FamiliesWriter writer = new FamiliesWriter(out);
+                for (Family family : familyRegister.getFamilies()) {
+                    writer.write(family);
+                }
+                writer.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public static void mergePersons(List<String> shardPaths, String personsPath) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(personsPath)), 1 << 16)) {
+            PersonsWriter writer = new PersonsWriter(out);
+            for (String shardPath : shardPaths) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(shardPath)), 1 << 16)) {
+                    PersonsReader reader = new PersonsReader(in);
+                    for (Person person = reader.next(); person != null; person = reader.next()) {
+                        writer.write(person);
+                    }
+                    reader.close();
+                }
+            }
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public static void mergeFamilies(List<String> shardPaths, String familiesPath) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(familiesPath)), 1 << 16)) {
+            FamiliesWriter writer = new FamiliesWriter(out);
+            for (String shardPath : shardPaths) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(shardPath)), 1 << 16)) {
+                    FamiliesReader reader = new FamiliesReader(in);
+                    for (Family family = reader.next(); family != null; family = reader.next()) {
+                        writer.write(family);
+                    }
+                    reader.close();
+                }
+            }
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package de.university.hof.genai.f2p;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import Families.FamiliesPackage;
+import Families.Family;
+import Persons.Person;
+import Persons.PersonsPackage;
+
+// Families -> Persons for registers that do not fit into memory. The Families XMI is read with
+// StAX one family at a time, mapped by ModelTransformer.transformFamilyToPersons and the persons
+// are written out right away, so only the family being transformed is ever held in memory.
+public class StreamingFamiliesToPersons {
+
+	private static final String XMI_URI = "http://www.omg.org/XMI";
+	private static final String XSI_URI = "http://www.w3.org/2001/XMLSchema-instance";
+
+	private final ModelTransformer transformer = new ModelTransformer(null, null);
+
+    public static void main(String[] args) {
+        StreamingFamiliesToPersons t = new StreamingFamiliesToPersons();
+        try {
+            t.transform("path/to/Families.xmi", "path/to/TransformedPersons.xmi");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void transform(String familiesPath, String personsPath) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(familiesPath)), 1 << 16);
+                OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(personsPath)), 1 << 16)) {
+            transform(in, out);
+        }
+    }
+
+    public void transform(InputStream familiesXmi, OutputStream personsXmi) throws IOException {
+        try {
+            FamiliesReader reader = new FamiliesReader(familiesXmi);
+            PersonsWriter writer = new PersonsWriter(personsXmi);
+            List<Person> persons = new ArrayList<>();
+            for (Family family = reader.next(); family != null; family = reader.next()) {
+                persons.clear();
+                transformer.transformFamilyToPersons(family, persons);
+                for (Person person : persons) {
+                    writer.write(person);
+                }
+            }
+            writer.close();
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // Pulls the families of the first FamilyRegister in a Families XMI document, each one built
+    // with its members but detached from any register or resource
+    public static class FamiliesReader extends RegisterReader<Family> {
+        public FamiliesReader(InputStream in) throws XMLStreamException {
+            super(in, FamiliesPackage.Literals.FAMILY_REGISTER__FAMILIES);
+        }
+    }
+
+    // Pulls the persons of the first PersonRegister in a Persons XMI document
+    public static class PersonsReader extends RegisterReader<Person> {
+        public PersonsReader(InputStream in) throws XMLStreamException {
+            super(in, PersonsPackage.Literals.PERSON_REGISTER__PERSONS);
+        }
+    }
+
+    // Writes a FamilyRegister XMI document in the layout of an XMIResource, one family at a time
+    public static class FamiliesWriter extends RegisterWriter<Family> {
+        public FamiliesWriter(OutputStream out) throws XMLStreamException {
+            super(out, FamiliesPackage.Literals.FAMILY_REGISTER__FAMILIES);
+        }
+    }
+
+    // Writes a PersonRegister XMI document in the layout of an XMIResource, one person at a time
+    public static class PersonsWriter extends RegisterWriter<Person> {
+        public PersonsWriter(OutputStream out) throws XMLStreamException {
+            super(out, PersonsPackage.Literals.PERSON_REGISTER__PERSONS);
+        }
+    }
+
+    // Reads the objects contained by one feature of a register, the root of the document. The
+    // objects are built from the metamodel, so they come with all their contents.
+    public static class RegisterReader<T extends EObject> {
+    	private final XMLStreamReader reader;
+    	private final EReference registerFeature;
+    	private boolean inRegister = false;
+    	private boolean finished = false;
+
+        public RegisterReader(InputStream in, EReference registerFeature) throws XMLStreamException {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            reader = factory.createXMLStreamReader(in);
+            this.registerFeature = registerFeature;
+        }
+
+        // Returns null after the last object
+        @SuppressWarnings("unchecked")
+        public T next() throws XMLStreamException {
+            String featureName = registerFeature.getName();
+            while (!finished && reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (!inRegister) {
+                        // Skip the xmi:XMI wrapper of documents with several roots
+                        inRegister = !(XMI_URI.equals(reader.getNamespaceURI()) && "XMI".equals(reader.getLocalName()));
+                    } else if (featureName.equals(reader.getLocalName())) {
+                        return (T) readObject(registerFeature.getEReferenceType());
+                    } else {
+                        skipElement();
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && inRegister) {
+                    // Children are consumed completely, so this ends the register
+                    finished = true;
+                }
+            }
+            return null;
+        }
+
+        public void close() throws XMLStreamException {
+            reader.close();
+        }
+
+        @SuppressWarnings("unchecked")
+        private EObject readObject(EClass eClass) throws XMLStreamException {
+            EObject object = EcoreUtil.create(getType(eClass));
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String namespace = reader.getAttributeNamespace(i);
+                if (namespace == null || namespace.isEmpty()) {
+                    setAttribute(object, object.eClass().getEStructuralFeature(reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+                }
+            }
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    return object;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                EStructuralFeature feature = object.eClass().getEStructuralFeature(reader.getLocalName());
+                if (feature instanceof EReference && ((EReference) feature).isContainment()) {
+                    EObject child = readObject(((EReference) feature).getEReferenceType());
+                    if (feature.isMany()) {
+                        ((List<EObject>) object.eGet(feature)).add(child);
+                    } else {
+                        object.eSet(feature, child);
+                    }
+                } else if (feature instanceof EAttribute) {
+                    setAttribute(object, feature, reader.getElementText());
+                } else {
+                    skipElement();
+                }
+            }
+            return object;
+        }
+
+        // The xsi:type of the current element, if it names a subclass from the same package
+        private EClass getType(EClass eClass) {
+            String type = reader.getAttributeValue(XSI_URI, "type");
+            if (type != null) {
+                EClassifier classifier = eClass.getEPackage().getEClassifier(type.substring(type.indexOf(':') + 1));
+                if (classifier instanceof EClass && eClass.isSuperTypeOf((EClass) classifier)) {
+                    return (EClass) classifier;
+                }
+            }
+            return eClass;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void setAttribute(EObject object, EStructuralFeature feature, String value) {
+            if (!(feature instanceof EAttribute)) {
+                return;
+            }
+            Object converted = EcoreUtil.createFromString(((EAttribute) feature).getEAttributeType(), value);
+            if (feature.isMany()) {
+                ((List<Object>) object.eGet(feature)).add(converted);
+            } else {
+                object.eSet(feature, converted);
+            }
+        }
+
+        private void skipElement() throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+    }
+
+    // Writes a register document whose root contains the written objects through one feature.
+    // Contents of the objects are written recursively; xsi:type is given where the class of an
+    // object differs from the type of its feature, as an XMIResource does.
+    public static class RegisterWriter<T extends EObject> {
+    	private final XMLStreamWriter writer;
+    	private final EReference registerFeature;
+
+        public RegisterWriter(OutputStream out, EReference registerFeature) throws XMLStreamException {
+            this.registerFeature = registerFeature;
+            EPackage ePackage = registerFeature.getEContainingClass().getEPackage();
+            writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeCharacters("\n");
+            writer.writeStartElement(ePackage.getNsPrefix(), registerFeature.getEContainingClass().getName(), ePackage.getNsURI());
+            writer.writeNamespace("xmi", XMI_URI);
+            writer.writeNamespace("xsi", XSI_URI);
+            writer.writeNamespace(ePackage.getNsPrefix(), ePackage.getNsURI());
+            writer.writeAttribute("xmi", XMI_URI, "version", "2.0");
+        }
+
+        public void write(T object) throws XMLStreamException {
+            writeObject(registerFeature, object, "\n  ");
+        }
+
+        // Ends the document; the underlying stream is left open
+        public void close() throws XMLStreamException {
+            writer.writeCharacters("\n");
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void writeObject(EReference feature, EObject object, String indent) throws XMLStreamException {
+            EClass eClass = object.eClass();
+            List<EReference> contents = new ArrayList<>();
+            for (EReference reference : eClass.getEAllContainments()) {
+                if (!reference.isTransient() && object.eIsSet(reference)) {
+                    contents.add(reference);
+                }
+            }
+            writer.writeCharacters(indent);
+            if (contents.isEmpty()) {
+                writer.writeEmptyElement(feature.getName());
+            } else {
+                writer.writeStartElement(feature.getName());
+            }
+            if (eClass != feature.getEReferenceType()) {
+                writer.writeAttribute("xsi", XSI_URI, "type", eClass.getEPackage().getNsPrefix() + ":" + eClass.getName());
+            }
+            for (EAttribute attribute : eClass.getEAllAttributes()) {
+                if (!attribute.isMany() && !attribute.isTransient() && object.eIsSet(attribute)) {
+                    writer.writeAttribute(attribute.getName(), EcoreUtil.convertToString(attribute.getEAttributeType(), object.eGet(attribute)));
+                }
+            }
+            if (contents.isEmpty()) {
+                return;
+            }
+            for (EReference reference : contents) {
+                if (reference.isMany()) {
+                    for (EObject child : (List<EObject>) object.eGet(reference)) {
+                        writeObject(reference, child, indent + "  ");
+                    }
+                } else {
+                    writeObject(reference, (EObject) object.eGet(reference), indent + "  ");
+                }
+            }
+            writer.writeCharacters(indent);
+            writer.writeEndElement();
+        }
+    }
+}
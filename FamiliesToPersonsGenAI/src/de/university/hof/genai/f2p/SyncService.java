@@ -0,0 +1,555 @@
+package de.university.hof.genai.f2p;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import Families.FamiliesFactory;
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Male;
+import Persons.Person;
+import Persons.PersonRegister;
+import Persons.PersonsFactory;
+import de.university.hof.genai.f2p.TransformationMetrics.Operation;
+
+// Resident sync service around an IncrementalModelTransformer. Both models stay loaded; clients
+// connect to a Unix domain socket and send one command per line, with tab-separated arguments:
+//
+//   ADD_FAMILY name                    ADD_PERSON MALE|FEMALE name
+//   REMOVE_FAMILY name                 REMOVE_PERSON name
+//   RENAME_FAMILY name newName         RENAME_PERSON name newName
+//   ADD_MEMBER family FATHER|MOTHER|SON|DAUGHTER name
+//   REMOVE_MEMBER family name          SNAPSHOT
+//   RENAME_MEMBER family name newName  QUIT
+//
+// Each reply is "OK" or "ERROR" followed by a tab and the latency of the request in microseconds
+// or the error message. Every client is served by a virtual thread, but all commands are applied,
+// and propagated by the transformer, one after the other on a single writer thread, so EMF never
+// sees concurrent edits. Families are found by the transformer's family index and persons
+// through the trace, so a command costs about as much as the edit it makes.
+//
+// Snapshots take a flat copy of both models and their trace on the writer thread: names, roles
+// and links in a few arrays, no elements. The models are rebuilt from it and saved in the
+// background while edits go on, as Families and Persons with the file extension of the format,
+// next to Families2Persons.trace. A command that fails, including a scheduled snapshot, is
+// reported and the writer goes on with the next one.
+public class SyncService implements AutoCloseable {
+
+	private final IncrementalModelTransformer transformer;
+	private final Resource familiesResource;
+	private final Resource personsResource;
+	private final Path socketPath;
+	private final BlockingQueue<Runnable> commands = new LinkedBlockingQueue<>();
+	// Queued by close() after the last accepted command; the writer stops when it takes it
+	private final Runnable stop = () -> {
+	};
+	// Guards running, so no command is queued after the stop
+	private final Object lifecycle = new Object();
+	private final ScheduledExecutorService snapshotScheduler = Executors.newSingleThreadScheduledExecutor();
+	private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+	private final PersonNames.Parser names = new PersonNames.Parser(false);
+	private ModelPersistence persistence = new ModelPersistence(ModelPersistence.Format.XMI);
+	private TransformationMetrics metrics = TransformationMetrics.NOOP;
+	private Path snapshotDirectory;
+	private volatile boolean running;
+	private ServerSocketChannel server;
+	private Thread writerThread;
+	private Thread acceptThread;
+
+	public SyncService(IncrementalModelTransformer transformer, Resource familiesResource, Resource personsResource, Path socketPath) {
+		this.transformer = transformer;
+		this.familiesResource = familiesResource;
+		this.personsResource = personsResource;
+		this.socketPath = socketPath;
+	}
+
+    // Arguments: families persons trace socket [snapshotDirectory snapshotIntervalSeconds]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: SyncService <families> <persons> <trace> <socket> [<snapshotDirectory> <snapshotIntervalSeconds>]");
+            System.exit(2);
+        }
+        ModelPersistence persistence = new ModelPersistence(ModelPersistence.Format.XMI);
+        ResourceSet resourceSet = persistence.createResourceSet();
+
+        Resource familiesResource = persistence.load(resourceSet, args[0]);
+        Resource personsResource = persistence.load(resourceSet, args[1]);
+
+        FamilyRegister familyRegister = (FamilyRegister) familiesResource.getContents().get(0);
+        PersonRegister personRegister = (PersonRegister) personsResource.getContents().get(0);
+
+        IncrementalModelTransformer t = new IncrementalModelTransformer(familiesResource, personsResource);
+        t.setPersistence(persistence);
+        HistogramMetrics metrics = new HistogramMetrics();
+        t.setMetrics(metrics);
+        t.addFamilyRegisterListener(familyRegister, personRegister);
+        t.addPersonRegisterListener(personRegister, familyRegister);
+        if (!t.loadTrace(args[2])) {
+            t.transformFamiliesToPersons(familyRegister, personRegister);
+            t.transformPersonsToFamilies(personRegister, familyRegister, true, true);
+        }
+
+        SyncService service = new SyncService(t, familiesResource, personsResource, Path.of(args[3]));
+        service.setPersistence(persistence);
+        service.setMetrics(metrics);
+        if (args.length > 5) {
+            service.setSnapshots(Path.of(args[4]), Long.parseLong(args[5]));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            service.close();
+            System.out.println(metrics);
+        }));
+        service.start();
+    }
+
+    // Format of the snapshots. They are saved on a thread of their own, so with a new instance
+    // of that format rather than this one, which may be in use elsewhere.
+    public void setPersistence(ModelPersistence persistence) {
+        this.persistence = new ModelPersistence(persistence.getFormat());
+    }
+
+    public void setMetrics(TransformationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Takes a snapshot into directory every intervalSeconds, starting once the service runs
+    public void setSnapshots(Path directory, long intervalSeconds) {
+        this.snapshotDirectory = directory;
+        snapshotScheduler.scheduleWithFixedDelay(() -> submit(this::snapshot).whenComplete((result, e) -> {
+            if (e != null && running) {
+                e.printStackTrace();
+            }
+        }), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void start() throws IOException {
+        Files.deleteIfExists(socketPath);
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        synchronized (lifecycle) {
+            running = true;
+        }
+        writerThread = Thread.ofPlatform().name("sync-writer").start(this::writeLoop);
+        acceptThread = Thread.ofPlatform().name("sync-accept").start(this::acceptLoop);
+    }
+
+    @Override
+    public void close() {
+        synchronized (lifecycle) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            // Commands accepted so far still run; later ones fail in submit
+            commands.add(stop);
+        }
+        snapshotScheduler.shutdownNow();
+        try {
+            server.close();
+            acceptThread.join();
+            writerThread.join();
+            Files.deleteIfExists(socketPath);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs a command on the writer thread and waits until it is applied and propagated
+    public void execute(String[] command) throws InterruptedException, ExecutionException {
+        submit(() -> apply(command)).get();
+    }
+
+    private CompletableFuture<Void> submit(Runnable action) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                action.run();
+                result.complete(null);
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        };
+        synchronized (lifecycle) {
+            if (!running) {
+                result.completeExceptionally(new IllegalStateException("Service is not running"));
+            } else {
+                commands.add(task);
+            }
+        }
+        return result;
+    }
+
+    private void writeLoop() {
+        try {
+            for (Runnable command = commands.take(); command != stop; command = commands.take()) {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel client = server.accept();
+                Thread.ofVirtual().start(() -> serve(client));
+            } catch (IOException e) {
+                if (running) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        try (client;
+                BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+                Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] command = line.split("\t", -1);
+                if (command[0].equals("QUIT")) {
+                    break;
+                }
+                long start = System.nanoTime();
+                String reply;
+                try {
+                    execute(command);
+                    reply = "OK\t" + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                } catch (ExecutionException e) {
+                    reply = "ERROR\t" + e.getCause().getMessage();
+                }
+                metrics.record(Operation.REQUEST, System.nanoTime() - start);
+                out.write(reply);
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs on the writer thread
+    private void apply(String[] command) {
+        FamilyRegister familyRegister = (FamilyRegister) familiesResource.getContents().get(0);
+        PersonRegister personRegister = (PersonRegister) personsResource.getContents().get(0);
+        switch (command[0]) {
+        case "ADD_FAMILY" -> {
+            Family family = FamiliesFactory.eINSTANCE.createFamily();
+            family.setName(argument(command, 1));
+            transformer.modify(() -> familyRegister.getFamilies().add(family));
+        }
+        case "REMOVE_FAMILY" -> {
+            Family family = family(familyRegister, argument(command, 1));
+            transformer.modify(() -> familyRegister.getFamilies().remove(family));
+        }
+        case "RENAME_FAMILY" -> {
+            Family family = family(familyRegister, argument(command, 1));
+            String newName = argument(command, 2);
+            transformer.modify(() -> family.setName(newName));
+        }
+        case "ADD_MEMBER" -> {
+            Family family = family(familyRegister, argument(command, 1));
+            FamilyMember member = FamiliesFactory.eINSTANCE.createFamilyMember();
+            member.setName(argument(command, 3));
+            switch (argument(command, 2)) {
+            case "FATHER" -> {
+                if (family.getFather() != null) {
+                    throw new IllegalArgumentException("Family already has a father: " + family.getName());
+                }
+                transformer.modify(() -> family.setFather(member));
+            }
+            case "MOTHER" -> {
+                if (family.getMother() != null) {
+                    throw new IllegalArgumentException("Family already has a mother: " + family.getName());
+                }
+                transformer.modify(() -> family.setMother(member));
+            }
+            case "SON" -> transformer.modify(() -> family.getSons().add(member));
+            case "DAUGHTER" -> transformer.modify(() -> family.getDaughters().add(member));
+            default -> throw new IllegalArgumentException("Unknown role: " + command[2]);
+            }
+        }
+        case "REMOVE_MEMBER" -> {
+            FamilyMember member = member(family(familyRegister, argument(command, 1)), argument(command, 2));
+            transformer.modify(() -> EcoreUtil.remove(member));
+        }
+        case "RENAME_MEMBER" -> {
+            FamilyMember member = member(family(familyRegister, argument(command, 1)), argument(command, 2));
+            String newName = argument(command, 3);
+            transformer.rename(member, newName);
+        }
+        case "ADD_PERSON" -> {
+            Person person;
+            switch (argument(command, 1)) {
+            case "MALE" -> person = PersonsFactory.eINSTANCE.createMale();
+            case "FEMALE" -> person = PersonsFactory.eINSTANCE.createFemale();
+            default -> throw new IllegalArgumentException("Unknown gender: " + command[1]);
+            }
+            person.setName(argument(command, 2));
+            transformer.modify(() -> personRegister.getPersons().add(person));
+        }
+        case "REMOVE_PERSON" -> {
+            Person person = person(familyRegister, personRegister, argument(command, 1));
+            transformer.modify(() -> personRegister.getPersons().remove(person));
+        }
+        case "RENAME_PERSON" -> {
+            Person person = person(familyRegister, personRegister, argument(command, 1));
+            String newName = argument(command, 2);
+            transformer.rename(person, newName);
+        }
+        case "SNAPSHOT" -> {
+            if (snapshotDirectory == null) {
+                throw new IllegalStateException("No snapshot directory configured");
+            }
+            snapshot();
+        }
+        default -> throw new IllegalArgumentException("Unknown command: " + command[0]);
+        }
+    }
+
+    private static String argument(String[] command, int index) {
+        if (index >= command.length) {
+            throw new IllegalArgumentException(command[0] + " expects " + index + " or more arguments");
+        }
+        return command[index];
+    }
+
+    private Family family(FamilyRegister familyRegister, String name) {
+        Family family = transformer.getFamilyIndex(familyRegister).get(name);
+        if (family == null) {
+            throw new IllegalArgumentException("Unknown family: " + name);
+        }
+        return family;
+    }
+
+    private static FamilyMember member(Family family, String name) {
+        for (FamilyMember member : family.getSons()) {
+            if (name.equals(member.getName())) {
+                return member;
+            }
+        }
+        for (FamilyMember member : family.getDaughters()) {
+            if (name.equals(member.getName())) {
+                return member;
+            }
+        }
+        if (family.getFather() != null && name.equals(family.getFather().getName())) {
+            return family.getFather();
+        }
+        if (family.getMother() != null && name.equals(family.getMother().getName())) {
+            return family.getMother();
+        }
+        throw new IllegalArgumentException("Unknown member of family " + family.getName() + ": " + name);
+    }
+
+    private Person person(FamilyRegister familyRegister, PersonRegister personRegister, String name) {
+        // Persons of well-formed names are linked to a member, which the family index finds
+        if (names.parse(name)) {
+            Family family = transformer.getFamilyIndex(familyRegister).get(names.getFamilyName());
+            if (family != null) {
+                for (FamilyMember member : IncrementalModelTransformer.getMembers(family)) {
+                    Person person = transformer.getPerson(member);
+                    if (person != null && name.equals(person.getName())) {
+                        return person;
+                    }
+                }
+            }
+        }
+        for (Person person : personRegister.getPersons()) {
+            if (name.equals(person.getName())) {
+                return person;
+            }
+        }
+        throw new IllegalArgumentException("Unknown person: " + name);
+    }
+
+    // Runs on the writer thread, which only takes a flat copy; the models are rebuilt from it and
+    // saved in the background
+    private void snapshot() {
+        if (!snapshotRunning.compareAndSet(false, true)) {
+            return; // The previous snapshot is still being saved
+        }
+        long start = System.nanoTime();
+        Snapshot snapshot = new Snapshot((FamilyRegister) familiesResource.getContents().get(0), (PersonRegister) personsResource.getContents().get(0), transformer);
+        Thread.ofVirtual().name("sync-snapshot").start(() -> {
+            try {
+                Files.createDirectories(snapshotDirectory);
+                String extension = "." + persistence.getFormat().getFileExtension();
+                String[] files = { "Families" + extension, "Persons" + extension, "Families2Persons.trace" };
+                // Written next to the previous snapshot, which is only replaced once all files exist
+                ResourceSet resourceSet = persistence.createResourceSet();
+                Resource familiesCopy = resourceSet.createResource(URI.createFileURI(snapshotPath(files[0] + ".tmp")));
+                Resource personsCopy = resourceSet.createResource(URI.createFileURI(snapshotPath(files[1] + ".tmp")));
+                Map<FamilyMember, Person> trace = snapshot.restore(familiesCopy, personsCopy);
+                persistence.save(familiesCopy, snapshotPath(files[0] + ".tmp"));
+                persistence.save(personsCopy, snapshotPath(files[1] + ".tmp"));
+                TraceFile.write(Path.of(snapshotPath(files[2] + ".tmp")), familiesCopy, personsCopy, trace::get);
+                for (String file : files) {
+                    Files.move(Path.of(snapshotPath(file + ".tmp")), Path.of(snapshotPath(file)), StandardCopyOption.REPLACE_EXISTING);
+                }
+                metrics.record(Operation.SNAPSHOT, System.nanoTime() - start);
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                snapshotRunning.set(false);
+            }
+        });
+    }
+
+    private String snapshotPath(String file) {
+        return snapshotDirectory.resolve(file).toString();
+    }
+
+	// Flat copy of both registers: the names, which are immutable and can be shared, the roles
+	// and genders, and for every person the member the trace links it to. Taking it fills a few
+	// arrays in one pass over each register, instead of copying every element and mapping it in a
+	// Copier; the elements are only created by restore, on another thread. The members are kept
+	// to match them with the linked ones by identity, and are not read once the copy is taken.
+	private static final class Snapshot {
+		private static final byte FATHER = 0;
+		private static final byte MOTHER = 1;
+		private static final byte SON = 2;
+		private static final byte DAUGHTER = 3;
+
+		private final String[] familyNames;
+		// Index of the first member of each family, and the member count at the end
+		private final int[] memberStarts;
+		private final String[] memberNames;
+		private final byte[] roles;
+		private final FamilyMember[] members;
+		private final String[] personNames;
+		private final boolean[] males;
+		private final FamilyMember[] linkedMembers;
+
+		Snapshot(FamilyRegister familyRegister, PersonRegister personRegister, IncrementalModelTransformer transformer) {
+			List<Family> families = familyRegister.getFamilies();
+			int memberCount = 0;
+			for (Family family : families) {
+				memberCount += (family.getFather() == null ? 0 : 1) + (family.getMother() == null ? 0 : 1) + family.getSons().size() + family.getDaughters().size();
+			}
+			familyNames = new String[families.size()];
+			memberStarts = new int[families.size() + 1];
+			memberNames = new String[memberCount];
+			roles = new byte[memberCount];
+			members = new FamilyMember[memberCount];
+			int member = 0;
+			for (int i = 0; i < familyNames.length; i++) {
+				Family family = families.get(i);
+				familyNames[i] = family.getName();
+				memberStarts[i] = member;
+				if (family.getFather() != null) {
+					member = add(member, family.getFather(), FATHER);
+				}
+				if (family.getMother() != null) {
+					member = add(member, family.getMother(), MOTHER);
+				}
+				for (FamilyMember son : family.getSons()) {
+					member = add(member, son, SON);
+				}
+				for (FamilyMember daughter : family.getDaughters()) {
+					member = add(member, daughter, DAUGHTER);
+				}
+			}
+			memberStarts[familyNames.length] = member;
+
+			List<Person> persons = personRegister.getPersons();
+			personNames = new String[persons.size()];
+			males = new boolean[persons.size()];
+			linkedMembers = new FamilyMember[persons.size()];
+			for (int i = 0; i < personNames.length; i++) {
+				Person person = persons.get(i);
+				personNames[i] = person.getName();
+				males[i] = person instanceof Male;
+				linkedMembers[i] = transformer.getFamilyMember(person);
+			}
+		}
+
+		private int add(int index, FamilyMember member, byte role) {
+			memberNames[index] = member.getName();
+			roles[index] = role;
+			members[index] = member;
+			return index + 1;
+		}
+
+		// Fills the empty resources with new registers and returns the trace between them
+		Map<FamilyMember, Person> restore(Resource familiesResource, Resource personsResource) {
+			Map<FamilyMember, Integer> memberIndices = new IdentityHashMap<>(members.length);
+			FamilyMember[] memberCopies = new FamilyMember[members.length];
+			FamilyRegister familyRegister = FamiliesFactory.eINSTANCE.createFamilyRegister();
+			for (int i = 0; i < familyNames.length; i++) {
+				Family family = FamiliesFactory.eINSTANCE.createFamily();
+				family.setName(familyNames[i]);
+				for (int member = memberStarts[i]; member < memberStarts[i + 1]; member++) {
+					FamilyMember copy = FamiliesFactory.eINSTANCE.createFamilyMember();
+					copy.setName(memberNames[member]);
+					switch (roles[member]) {
+					case FATHER -> family.setFather(copy);
+					case MOTHER -> family.setMother(copy);
+					case SON -> family.getSons().add(copy);
+					default -> family.getDaughters().add(copy);
+					}
+					memberIndices.put(members[member], member);
+					memberCopies[member] = copy;
+				}
+				familyRegister.getFamilies().add(family);
+			}
+
+			Map<FamilyMember, Person> trace = new IdentityHashMap<>(members.length);
+			PersonRegister personRegister = PersonsFactory.eINSTANCE.createPersonRegister();
+			for (int i = 0; i < personNames.length; i++) {
+				Person copy = males[i] ? PersonsFactory.eINSTANCE.createMale() : PersonsFactory.eINSTANCE.createFemale();
+				copy.setName(personNames[i]);
+				personRegister.getPersons().add(copy);
+				Integer member = linkedMembers[i] == null ? null : memberIndices.get(linkedMembers[i]);
+				if (member != null) {
+					trace.put(memberCopies[member], copy);
+				}
+			}
+			familiesResource.getContents().add(familyRegister);
+			personsResource.getContents().add(personRegister);
+			return trace;
+		}
+	}
+}
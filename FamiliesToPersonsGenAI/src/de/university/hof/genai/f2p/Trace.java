@@ -0,0 +1,287 @@
+package de.university.hof.genai.f2p;
+
+import java.util.concurrent.locks.StampedLock;
+
+import Families.FamilyMember;
+import Persons.Person;
+
+// The FamilyMember <-> Person trace. Every link is stored once, as a member and person pair in
+// one array (side by side, so a lookup finds the key and its counterpart on one cache line);
+// two open-addressing tables (linear probing on the identity hash) map either side to the index
+// of its link, stored plus one so that zero marks a free slot. The top bits of a table entry
+// repeat bits of the key's hash, so probing past other keys rarely has to look at the links.
+// Removing a link moves the last link into its place, which keeps the array dense. A link costs
+// two references, four table slots at most and a position hint, instead of a map node in each of
+// two hash maps. The hint is where the person was last seen in its list, so it can be removed
+// without a search; it may be stale and has to be checked before use.
+//
+// Writers have to be serialized by the caller. Readers need no lock: they read optimistically
+// and only retry under the read lock when a write got in between. Position hints are only meant
+// for writers and are read without validation.
+public final class Trace {
+
+	private static final int MIN_CAPACITY = 16;
+	private static final int MEMBER = 0;
+	private static final int PERSON = 1;
+	private static final int LINK_BITS = 27;
+	private static final int LINK_MASK = (1 << LINK_BITS) - 1;
+	static final int MAX_LINKS = LINK_MASK - 1;
+
+	private final StampedLock stamp = new StampedLock();
+	// Member of link i at 2 * i, its person at 2 * i + 1
+	private Object[] links = new Object[2 * MIN_CAPACITY];
+	// Twice the link capacity, so no table gets more than half full
+	private int[] memberTable = new int[2 * MIN_CAPACITY];
+	private int[] personTable = new int[2 * MIN_CAPACITY];
+	// Position hint of the person of link i, -1 if unknown
+	private int[] positions = new int[MIN_CAPACITY];
+	private int size;
+	private final int maxLinks;
+
+	public Trace() {
+		this(MAX_LINKS);
+	}
+
+	// A lower limit lets the tests reach it
+	Trace(int maxLinks) {
+		this.maxLinks = maxLinks;
+	}
+
+    public Person getPerson(FamilyMember familyMember) {
+        long s = stamp.tryOptimisticRead();
+        Object person = get(memberTable, links, MEMBER, familyMember);
+        if (!stamp.validate(s)) {
+            s = stamp.readLock();
+            try {
+                person = get(memberTable, links, MEMBER, familyMember);
+            } finally {
+                stamp.unlockRead(s);
+            }
+        }
+        return (Person) person;
+    }
+
+    public FamilyMember getFamilyMember(Person person) {
+        long s = stamp.tryOptimisticRead();
+        Object familyMember = get(personTable, links, PERSON, person);
+        if (!stamp.validate(s)) {
+            s = stamp.readLock();
+            try {
+                familyMember = get(personTable, links, PERSON, person);
+            } finally {
+                stamp.unlockRead(s);
+            }
+        }
+        return (FamilyMember) familyMember;
+    }
+
+    public boolean containsFamilyMember(FamilyMember familyMember) {
+        return getPerson(familyMember) != null;
+    }
+
+    public boolean containsPerson(Person person) {
+        return getFamilyMember(person) != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Links both elements, replacing any link either of them had before
+    public void link(FamilyMember familyMember, Person person) {
+        link(familyMember, person, -1);
+    }
+
+    public void link(FamilyMember familyMember, Person person, int personPosition) {
+        long s = stamp.writeLock();
+        try {
+            removeLink(find(memberTable, links, MEMBER, familyMember));
+            removeLink(find(personTable, links, PERSON, person));
+            if (size == maxLinks) {
+                throw new IllegalStateException("Trace cannot hold more than " + maxLinks + " links");
+            }
+            if (2 * size == links.length) {
+                resize(links.length);
+            }
+            links[2 * size] = familyMember;
+            links[2 * size + 1] = person;
+            positions[size] = personPosition;
+            insert(memberTable, familyMember, size);
+            insert(personTable, person, size);
+            size++;
+        } finally {
+            stamp.unlockWrite(s);
+        }
+    }
+
+    // Returns the person the member was linked to, or null
+    public Person unlinkFamilyMember(FamilyMember familyMember) {
+        long s = stamp.writeLock();
+        try {
+            int link = find(memberTable, links, MEMBER, familyMember);
+            Person person = link < 0 ? null : (Person) links[2 * link + 1];
+            removeLink(link);
+            return person;
+        } finally {
+            stamp.unlockWrite(s);
+        }
+    }
+
+    // Returns the member the person was linked to, or null
+    public FamilyMember unlinkPerson(Person person) {
+        long s = stamp.writeLock();
+        try {
+            int link = find(personTable, links, PERSON, person);
+            FamilyMember familyMember = link < 0 ? null : (FamilyMember) links[2 * link];
+            removeLink(link);
+            return familyMember;
+        } finally {
+            stamp.unlockWrite(s);
+        }
+    }
+
+    // Where the person was last seen in its list, or -1
+    public int getPosition(Person person) {
+        int link = find(personTable, links, PERSON, person);
+        return link < 0 ? -1 : positions[link];
+    }
+
+    // Ignored for persons without a link
+    public void setPosition(Person person, int position) {
+        int link = find(personTable, links, PERSON, person);
+        if (link >= 0) {
+            positions[link] = position;
+        }
+    }
+
+    public void clear() {
+        long s = stamp.writeLock();
+        try {
+            links = new Object[2 * MIN_CAPACITY];
+            positions = new int[MIN_CAPACITY];
+            memberTable = new int[2 * MIN_CAPACITY];
+            personTable = new int[2 * MIN_CAPACITY];
+            size = 0;
+        } finally {
+            stamp.unlockWrite(s);
+        }
+    }
+
+    // Tolerates the torn state an optimistic read may see: the arrays may belong to different
+    // generations, so every index is checked and probing ends after one round
+    private static Object get(int[] table, Object[] links, int side, Object key) {
+        if (key == null) {
+            return null;
+        }
+        int hash = hash(key);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return null;
+            }
+            int index = 2 * ((entry & LINK_MASK) - 1) + side;
+            if (((entry ^ hash) & ~LINK_MASK) == 0 && index < links.length && links[index] == key) {
+                return links[index ^ 1];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static int find(int[] table, Object[] links, int side, Object key) {
+        if (key == null) {
+            return -1;
+        }
+        int hash = hash(key);
+        int mask = table.length - 1;
+        for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int link = (table[slot] & LINK_MASK) - 1;
+            if (((table[slot] ^ hash) & ~LINK_MASK) == 0 && links[2 * link + side] == key) {
+                return link;
+            }
+        }
+        return -1;
+    }
+
+    private static void insert(int[] table, Object key, int link) {
+        int hash = hash(key);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = (hash & ~LINK_MASK) | (link + 1);
+    }
+
+    private static int slotOf(int[] table, Object key, int link) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while ((table[slot] & LINK_MASK) != link + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void removeLink(int link) {
+        if (link < 0) {
+            return;
+        }
+        delete(memberTable, MEMBER, link);
+        delete(personTable, PERSON, link);
+        int last = --size;
+        if (link != last) {
+            links[2 * link] = links[2 * last];
+            links[2 * link + 1] = links[2 * last + 1];
+            positions[link] = positions[last];
+            relink(memberTable, links[2 * link], last, link);
+            relink(personTable, links[2 * link + 1], last, link);
+        }
+        links[2 * last] = null;
+        links[2 * last + 1] = null;
+    }
+
+    private static void relink(int[] table, Object key, int oldLink, int newLink) {
+        int slot = slotOf(table, key, oldLink);
+        table[slot] = (table[slot] & ~LINK_MASK) | (newLink + 1);
+    }
+
+    // Backward shift deletion: later entries of the probe sequence move up into the gap, so
+    // lookups never need tombstones
+    private void delete(int[] table, int side, int link) {
+        int mask = table.length - 1;
+        int slot = slotOf(table, links[2 * link + side], link);
+        for (int next = (slot + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            int home = hash(links[2 * ((table[next] & LINK_MASK) - 1) + side]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                table[slot] = table[next];
+                slot = next;
+            }
+        }
+        table[slot] = 0;
+    }
+
+    private void resize(int capacity) {
+        Object[] newLinks = new Object[2 * capacity];
+        System.arraycopy(links, 0, newLinks, 0, 2 * size);
+        int[] newPositions = new int[capacity];
+        System.arraycopy(positions, 0, newPositions, 0, size);
+        int[] newMemberTable = new int[2 * capacity];
+        int[] newPersonTable = new int[2 * capacity];
+        for (int link = 0; link < size; link++) {
+            insert(newMemberTable, newLinks[2 * link], link);
+            insert(newPersonTable, newLinks[2 * link + 1], link);
+        }
+        links = newLinks;
+        positions = newPositions;
+        memberTable = newMemberTable;
+        personTable = newPersonTable;
+    }
+
+    private static int hash(Object key) {
+        // Identity hashes have 31 bits; the multiplication spreads them over all 32
+        int h = System.identityHashCode(key) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,232 @@
+package de.university.hof.genai.f2p;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+
+import Families.Family;
+import Families.FamilyMember;
+import Families.FamilyRegister;
+import Persons.Person;
+import Persons.PersonRegister;
+
+// Binary side file holding the FamilyMember <-> Person trace, keyed by URI fragments (IDs for
+// resources that use them, positional paths otherwise). Consecutive fragments share long
+// prefixes ("//@families.12/@sons.3"), so each one is stored as the length of the prefix it
+// shares with the previous fragment of its column plus the remaining suffix.
+final class TraceFile {
+
+	private static final int MAGIC = 0x46325054; // "F2PT"
+	private static final int VERSION = 1;
+
+	private TraceFile() {
+	}
+
+	static final class Links {
+		final List<FamilyMember> members = new ArrayList<>();
+		final List<Person> persons = new ArrayList<>();
+	}
+
+	static void write(Path path, Resource familiesResource, Resource personsResource, Function<FamilyMember, Person> trace) throws IOException {
+		// Links are written in model order, which keeps consecutive fragments similar
+		Links links = new Links();
+		for (Family family : getFamilyRegister(familiesResource).getFamilies()) {
+			addLink(links, family.getFather(), trace);
+			addLink(links, family.getMother(), trace);
+			for (FamilyMember son : family.getSons()) {
+				addLink(links, son, trace);
+			}
+			for (FamilyMember daughter : family.getDaughters()) {
+				addLink(links, daughter, trace);
+			}
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeVarInt(out, getFamilyRegister(familiesResource).getFamilies().size());
+			writeVarInt(out, getPersonRegister(personsResource).getPersons().size());
+			writeVarInt(out, links.members.size());
+			byte[] previousMember = new byte[0];
+			byte[] previousPerson = new byte[0];
+			for (int i = 0; i < links.members.size(); i++) {
+				previousMember = writeFragment(out, familiesResource.getURIFragment(links.members.get(i)), previousMember);
+				previousPerson = writeFragment(out, personsResource.getURIFragment(links.persons.get(i)), previousPerson);
+			}
+		}
+	}
+
+	private static void addLink(Links links, FamilyMember member, Function<FamilyMember, Person> trace) {
+		Person person = member == null ? null : trace.apply(member);
+		if (person != null) {
+			links.members.add(member);
+			links.persons.add(person);
+		}
+	}
+
+	// Returns null when the file does not match the resources: other register sizes, or fragments
+	// that no longer resolve to a member or a person. A truncated or damaged file is reported as an
+	// IOException.
+	static Links read(Path path, Resource familiesResource, Resource personsResource) throws IOException {
+		try (TraceInput in = new TraceInput(new BufferedInputStream(Files.newInputStream(path), 1 << 16), Files.size(path))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+			if (readVarInt(in) != getFamilyRegister(familiesResource).getFamilies().size()
+					|| readVarInt(in) != getPersonRegister(personsResource).getPersons().size()) {
+				return null;
+			}
+			int size = readVarInt(in);
+			if (size < 0) {
+				throw new IOException("Malformed trace file: " + size + " links");
+			}
+			Links links = new Links();
+			byte[] previousMember = new byte[0];
+			byte[] previousPerson = new byte[0];
+			for (int i = 0; i < size; i++) {
+				previousMember = readFragment(in, previousMember);
+				previousPerson = readFragment(in, previousPerson);
+				EObject member = resolve(familiesResource, previousMember);
+				EObject person = resolve(personsResource, previousPerson);
+				if (!(member instanceof FamilyMember) || !(person instanceof Person)) {
+					return null;
+				}
+				links.members.add((FamilyMember) member);
+				links.persons.add((Person) person);
+			}
+			return links;
+		}
+	}
+
+	private static byte[] writeFragment(DataOutputStream out, String fragment, byte[] previous) throws IOException {
+		byte[] bytes = fragment.getBytes(StandardCharsets.UTF_8);
+		int shared = 0;
+		int max = Math.min(bytes.length, previous.length);
+		while (shared < max && bytes[shared] == previous[shared]) {
+			shared++;
+		}
+		writeVarInt(out, shared);
+		writeVarInt(out, bytes.length - shared);
+		out.write(bytes, shared, bytes.length - shared);
+		return bytes;
+	}
+
+	// Resolving a damaged positional fragment can fail inside EMF; such a fragment resolves to nothing
+	private static EObject resolve(Resource resource, byte[] fragment) {
+		try {
+			return resource.getEObject(new String(fragment, StandardCharsets.UTF_8));
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static byte[] readFragment(TraceInput in, byte[] previous) throws IOException {
+		int shared = readVarInt(in);
+		int suffix = readVarInt(in);
+		// Lengths from a damaged file must not make the copy fail or allocate more than the file holds
+		if (shared < 0 || shared > previous.length || suffix < 0 || suffix > in.remaining()) {
+			throw new IOException("Malformed trace file: fragment of " + shared + " shared and " + suffix + " new bytes");
+		}
+		byte[] bytes = new byte[shared + suffix];
+		System.arraycopy(previous, 0, bytes, 0, shared);
+		in.readFully(bytes, shared, suffix);
+		return bytes;
+	}
+
+	private static void writeVarInt(OutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarInt(InputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.read();
+			if (b < 0) {
+				throw new IOException("Unexpected end of trace file");
+			}
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed trace file");
+	}
+
+	// The trace file, keeping track of the bytes left in it
+	private static final class TraceInput extends FilterInputStream {
+
+		private long remaining;
+
+		TraceInput(InputStream in, long length) {
+			super(in);
+			this.remaining = length;
+		}
+
+		long remaining() {
+			return remaining;
+		}
+
+		int readInt() throws IOException {
+			byte[] bytes = new byte[4];
+			readFully(bytes, 0, 4);
+			return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | bytes[3] & 0xFF;
+		}
+
+		void readFully(byte[] bytes, int offset, int length) throws IOException {
+			if (readNBytes(bytes, offset, length) < length) {
+				throw new EOFException("Unexpected end of trace file");
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				remaining--;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int count = super.read(b, off, len);
+			if (count > 0) {
+				remaining -= count;
+			}
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			remaining -= skipped;
+			return skipped;
+		}
+	}
+
+	private static FamilyRegister getFamilyRegister(Resource familiesResource) {
+		return (FamilyRegister) familiesResource.getContents().get(0);
+	}
+
+	private static PersonRegister getPersonRegister(Resource personsResource) {
+		return (PersonRegister) personsResource.getContents().get(0);
+	}
+}
@@ -0,0 +1,55 @@
+package de.university.hof.genai.f2p;
+
+// Receives counters and latencies from the transformers. Both call it on their hot paths, so
+// implementations must be cheap and thread-safe; NOOP is the default.
+public interface TransformationMetrics {
+
+	enum Counter {
+		PERSONS_CREATED,
+		PERSONS_REMOVED,
+		MEMBERS_CREATED,
+		MEMBERS_REMOVED,
+		FAMILIES_CREATED,
+		MALFORMED_NAMES_SKIPPED,
+		// Notifications of the incremental transformer's listener
+		NOTIFICATIONS_HANDLED,
+		NOTIFICATIONS_SUPPRESSED,
+		NOTIFICATIONS_BATCHED
+	}
+
+	enum Operation {
+		FAMILIES_TO_PERSONS,
+		PERSONS_TO_FAMILIES,
+		// Propagation of one change notified by the Families or the Persons model
+		PROPAGATE_FAMILIES_CHANGE,
+		PROPAGATE_PERSONS_CHANGE,
+		FLUSH,
+		LOAD_TRACE,
+		SAVE_TRACE,
+		SAVE_MODEL,
+		// SyncService: one request from its arrival to the reply, and one background snapshot
+		REQUEST,
+		SNAPSHOT,
+		// ModelResync: applying the differences of one reloaded register
+		RESYNC
+	}
+
+	TransformationMetrics NOOP = new TransformationMetrics() {
+		@Override
+		public void increment(Counter counter, long amount) {
+		}
+
+		@Override
+		public void record(Operation operation, long nanos) {
+		}
+	};
+
+	void increment(Counter counter, long amount);
+
+	default void increment(Counter counter) {
+		increment(counter, 1);
+	}
+
+	// Duration of one operation, in nanoseconds
+	void record(Operation operation, long nanos);
+}